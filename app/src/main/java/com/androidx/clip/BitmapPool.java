@@ -0,0 +1,197 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Bitmap复用池，按尺寸和格式复用，超过内存上限时回收最久未使用的Bitmap
+ */
+public class BitmapPool {
+
+    /**
+     * 默认复用池
+     */
+    private static BitmapPool pool;
+    /**
+     * 复用的Bitmap，头部为最久未使用
+     */
+    private final LinkedList<Bitmap> bitmaps = new LinkedList<>();
+    /**
+     * 内存上限（字节）
+     */
+    private long maxSize;
+    /**
+     * 当前占用（字节）
+     */
+    private long size;
+
+    /**
+     * @param maxSize 内存上限（字节）
+     */
+    public BitmapPool(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return 默认复用池，上限为最大内存的1/8
+     */
+    public static synchronized BitmapPool getDefault() {
+        if (pool == null) {
+            pool = new BitmapPool(Runtime.getRuntime().maxMemory() / 8);
+        }
+        return pool;
+    }
+
+    /**
+     * 获取透明的Bitmap，没有可复用的则创建
+     *
+     * @param width  宽度
+     * @param height 高度
+     * @param config 格式
+     * @return Bitmap
+     */
+    public Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = obtain(width, height, config);
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            return bitmap;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * 获取解码复用的Bitmap（BitmapFactory.Options.inBitmap），内容未清空
+     *
+     * @param width  解码后宽度
+     * @param height 解码后高度
+     * @param config 格式
+     * @return 可复用的Bitmap，没有返回null
+     */
+    public Bitmap getForDecode(int width, int height, Bitmap.Config config) {
+        return obtain(width, height, config);
+    }
+
+    /**
+     * 取出可复用的Bitmap，同尺寸同格式优先，4.4及以上可复用内存足够的Bitmap
+     *
+     * @param width  宽度
+     * @param height 高度
+     * @param config 格式
+     * @return Bitmap
+     */
+    private synchronized Bitmap obtain(int width, int height, Bitmap.Config config) {
+        if (config == null || width <= 0 || height <= 0) {
+            return null;
+        }
+        Bitmap reconfigurable = null;
+        long bytes = (long) width * height * getBytesPerPixel(config);
+        Iterator<Bitmap> iterator = bitmaps.iterator();
+        while (iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                iterator.remove();
+                size -= getSize(bitmap);
+                return bitmap;
+            }
+            if (reconfigurable == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && getSize(bitmap) >= bytes) {
+                reconfigurable = bitmap;
+            }
+        }
+        if (reconfigurable != null) {
+            bitmaps.remove(reconfigurable);
+            size -= getSize(reconfigurable);
+            reconfigurable.reconfigure(width, height, config);
+            return reconfigurable;
+        }
+        return null;
+    }
+
+    /**
+     * 归还Bitmap，归还后调用方不能再使用
+     *
+     * @param bitmap Bitmap
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        //重复归还时已在池中，不能回收，否则之后取出的是已回收的Bitmap
+        if (bitmaps.contains(bitmap)) {
+            return;
+        }
+        if (!bitmap.isMutable() || getSize(bitmap) > maxSize) {
+            bitmap.recycle();
+            return;
+        }
+        bitmaps.addLast(bitmap);
+        size += getSize(bitmap);
+        trimToSize(maxSize);
+    }
+
+    /**
+     * 设置内存上限
+     *
+     * @param maxSize 内存上限（字节）
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * @return 当前占用（字节）
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * 清空复用池
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * 回收最久未使用的Bitmap直到不超过上限
+     *
+     * @param maxSize 上限
+     */
+    private void trimToSize(long maxSize) {
+        while (size > maxSize && !bitmaps.isEmpty()) {
+            Bitmap bitmap = bitmaps.removeFirst();
+            size -= getSize(bitmap);
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * @param bitmap Bitmap
+     * @return 占用内存（字节）
+     */
+    public static long getSize(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    /**
+     * @param config 格式
+     * @return 每个像素字节数
+     */
+    public static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        if (config == Bitmap.Config.RGB_565) {
+            return 2;
+        }
+        return 4;
+    }
+
+}
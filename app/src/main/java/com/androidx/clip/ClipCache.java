@@ -0,0 +1,193 @@
+package com.androidx.clip;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import java.io.File;
+
+/**
+ * 进程内图片缓存：配置变化（旋转、深色模式）时保留显示图片，重建的View直接取用，不重新解码；
+ * 可选的共享缓存按来源与解码尺寸缓存显示图片，多个ClipView之间复用
+ */
+public class ClipCache {
+
+    /**
+     * 共享缓存，未设置上限时为null（关闭）
+     */
+    private static LruCache<String, Bitmap> cache;
+
+    /**
+     * 保留的显示图片，取用后移除，重建后未取用的移除
+     */
+    private static LruCache<String, Bitmap> retained;
+
+    /**
+     * @return 保留的显示图片，上限为最大内存的1/8
+     */
+    private static synchronized LruCache<String, Bitmap> getRetained() {
+        if (retained == null) {
+            retained = new LruCache<String, Bitmap>((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8)) {
+                @Override
+                protected int sizeOf(String key, Bitmap value) {
+                    return (int) BitmapPool.getSize(value);
+                }
+            };
+        }
+        return retained;
+    }
+
+    /**
+     * 设置共享缓存上限，缓存的图片由多个ClipView共用，不会被回收或复用
+     *
+     * @param maxSize 上限（字节），小于等于0时关闭并清空
+     */
+    public static synchronized void setMaxSize(int maxSize) {
+        if (cache != null) {
+            cache.evictAll();
+            cache = null;
+        }
+        if (maxSize > 0) {
+            cache = new LruCache<String, Bitmap>(maxSize) {
+                @Override
+                protected int sizeOf(String key, Bitmap value) {
+                    return (int) BitmapPool.getSize(value);
+                }
+            };
+        }
+    }
+
+    /**
+     * @return 共享缓存，关闭时为null
+     */
+    private static synchronized LruCache<String, Bitmap> getCache() {
+        return cache;
+    }
+
+    /**
+     * 从共享缓存获取显示图片
+     *
+     * @param resources 资源
+     * @param path      图片路径
+     * @param resId     资源id
+     * @param reqWidth  解码宽度
+     * @param reqHeight 解码高度
+     * @param config    图片格式
+     * @return 显示图片，关闭或没有时返回null
+     */
+    public static Bitmap get(Resources resources, String path, int resId, int reqWidth, int reqHeight, Bitmap.Config config) {
+        LruCache<String, Bitmap> cache = getCache();
+        String key = getKey(resources, path, resId);
+        if (cache == null || key == null) {
+            return null;
+        }
+        Bitmap bitmap = cache.get(key + "@" + reqWidth + "x" + reqHeight + ":" + config);
+        if (bitmap == null || bitmap.isRecycled()) {
+            return null;
+        }
+        return bitmap;
+    }
+
+    /**
+     * 放入共享缓存，关闭时忽略
+     *
+     * @param resources 资源
+     * @param path      图片路径
+     * @param resId     资源id
+     * @param reqWidth  解码宽度
+     * @param reqHeight 解码高度
+     * @param config    图片格式
+     * @param bitmap    显示图片
+     */
+    public static void put(Resources resources, String path, int resId, int reqWidth, int reqHeight, Bitmap.Config config, Bitmap bitmap) {
+        LruCache<String, Bitmap> cache = getCache();
+        String key = getKey(resources, path, resId);
+        if (cache == null || key == null || bitmap == null) {
+            return;
+        }
+        cache.put(key + "@" + reqWidth + "x" + reqHeight + ":" + config, bitmap);
+    }
+
+    /**
+     * 清空共享缓存与保留的图片
+     */
+    public static void clear() {
+        LruCache<String, Bitmap> cache = getCache();
+        if (cache != null) {
+            cache.evictAll();
+        }
+        getRetained().evictAll();
+    }
+
+    /**
+     * @param resources 资源
+     * @param path      图片路径
+     * @param resId     资源id
+     * @return 图片来源的key，路径包含文件大小与修改时间，文件被替换后不会取到旧图片；
+     * 资源包含深色模式与屏幕密度，切换后重新解码对应的资源；不是来自路径或资源时返回null
+     */
+    public static String getKey(Resources resources, String path, int resId) {
+        if (path != null) {
+            File file = new File(path);
+            return "path:" + path + "#" + file.length() + ":" + file.lastModified();
+        }
+        if (resId != 0) {
+            Configuration configuration = resources.getConfiguration();
+            return "res:" + resId + "#" + configuration.uiMode + ":" + configuration.densityDpi;
+        }
+        return null;
+    }
+
+    /**
+     * 保留显示图片，等待重建的View取用；重建在同一次主线程消息中完成，之后仍未取用的移除
+     *
+     * @param key    图片来源的key
+     * @param bitmap 显示图片
+     */
+    public static void retain(final String key, final Bitmap bitmap) {
+        if (key == null || bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        getRetained().put(key, bitmap);
+        ClipExecutor.post(new Runnable() {
+            @Override
+            public void run() {
+                release(key, bitmap);
+            }
+        });
+    }
+
+    /**
+     * 移除未被取用的保留图片，已被替换为其他图片时忽略
+     *
+     * @param key    图片来源的key
+     * @param bitmap 显示图片
+     */
+    private static void release(String key, Bitmap bitmap) {
+        LruCache<String, Bitmap> retained = getRetained();
+        synchronized (retained) {
+            if (retained.get(key) == bitmap) {
+                retained.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 取出保留的显示图片
+     *
+     * @param key 图片来源的key
+     * @return 显示图片，没有返回null
+     */
+    public static Bitmap take(String key) {
+        if (key == null) {
+            return null;
+        }
+        Bitmap bitmap = getRetained().remove(key);
+        if (bitmap == null || bitmap.isRecycled()) {
+            return null;
+        }
+        return bitmap;
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.androidx.clip;
+
+import android.graphics.Color;
+
+/**
+ * 裁剪配置（不可变）：裁剪框大小、图形、圆角、自定义图形、蒙版颜色、缩放范围，
+ * 整体应用到图片与蒙版，每个View只重绘一次
+ */
+public class ClipConfig {
+
+    /**
+     * 裁剪宽度
+     */
+    private final int clipWidth;
+    /**
+     * 裁剪高度
+     */
+    private final int clipHeight;
+    /**
+     * 裁剪图形
+     */
+    private final ClipShape clipShape;
+    /**
+     * 圆角矩形圆角大小
+     */
+    private final float roundRadius;
+    /**
+     * 自定义图形
+     */
+    private final ClipPath clipPath;
+    /**
+     * 蒙版颜色
+     */
+    private final int maskColor;
+    /**
+     * 最大缩放值
+     */
+    private final float maxScale;
+    /**
+     * 最小缩放值
+     */
+    private final float minScale;
+
+    private ClipConfig(Builder builder) {
+        this.clipWidth = builder.clipWidth;
+        this.clipHeight = builder.clipHeight;
+        this.clipShape = builder.clipShape;
+        this.roundRadius = builder.roundRadius;
+        this.clipPath = builder.clipPath;
+        this.maskColor = builder.maskColor;
+        this.maxScale = builder.maxScale;
+        this.minScale = builder.minScale;
+    }
+
+    public int getClipWidth() {
+        return clipWidth;
+    }
+
+    public int getClipHeight() {
+        return clipHeight;
+    }
+
+    public ClipShape getClipShape() {
+        return clipShape;
+    }
+
+    public float getRoundRadius() {
+        return roundRadius;
+    }
+
+    public ClipPath getClipPath() {
+        return clipPath;
+    }
+
+    public int getMaskColor() {
+        return maskColor;
+    }
+
+    public float getMaxScale() {
+        return maxScale;
+    }
+
+    public float getMinScale() {
+        return minScale;
+    }
+
+    /**
+     * @return 以当前配置为初始值的构建器
+     */
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * 配置构建器
+     */
+    public static class Builder {
+
+        private int clipWidth = 702;
+        private int clipHeight = 702;
+        private ClipShape clipShape = ClipShape.RECT;
+        private float roundRadius = 20;
+        private ClipPath clipPath;
+        private int maskColor = Color.parseColor("#8F000000");
+        private float maxScale = 3.0f;
+        private float minScale = 1.0F;
+
+        public Builder() {
+
+        }
+
+        private Builder(ClipConfig config) {
+            this.clipWidth = config.clipWidth;
+            this.clipHeight = config.clipHeight;
+            this.clipShape = config.clipShape;
+            this.roundRadius = config.roundRadius;
+            this.clipPath = config.clipPath;
+            this.maskColor = config.maskColor;
+            this.maxScale = config.maxScale;
+            this.minScale = config.minScale;
+        }
+
+        /**
+         * @param width  裁剪宽度
+         * @param height 裁剪高度
+         * @return 构建器
+         */
+        public Builder setClipSize(int width, int height) {
+            this.clipWidth = width;
+            this.clipHeight = height;
+            return this;
+        }
+
+        /**
+         * @param width 裁剪宽度
+         * @return 构建器
+         */
+        public Builder setClipWidth(int width) {
+            this.clipWidth = width;
+            return this;
+        }
+
+        /**
+         * @param height 裁剪高度
+         * @return 构建器
+         */
+        public Builder setClipHeight(int height) {
+            this.clipHeight = height;
+            return this;
+        }
+
+        /**
+         * @param shape 裁剪图形，为null时为矩形
+         * @return 构建器
+         */
+        public Builder setClipShape(ClipShape shape) {
+            this.clipShape = shape == null ? ClipShape.RECT : shape;
+            return this;
+        }
+
+        /**
+         * @param radius 圆角大小
+         * @return 构建器
+         */
+        public Builder setRoundRadius(float radius) {
+            this.roundRadius = radius;
+            return this;
+        }
+
+        /**
+         * 设置自定义图形，同时设置图形为{@link ClipShape#PATH}，为null时为矩形
+         *
+         * @param clipPath 自定义图形
+         * @return 构建器
+         */
+        public Builder setClipPath(ClipPath clipPath) {
+            this.clipPath = clipPath;
+            this.clipShape = clipPath != null ? ClipShape.PATH : ClipShape.RECT;
+            return this;
+        }
+
+        /**
+         * @param color 蒙版颜色
+         * @return 构建器
+         */
+        public Builder setMaskColor(int color) {
+            this.maskColor = color;
+            return this;
+        }
+
+        /**
+         * @param maxScale 最大缩放值，相对适配View宽度的缩放
+         * @return 构建器
+         */
+        public Builder setMaxScale(float maxScale) {
+            this.maxScale = maxScale;
+            return this;
+        }
+
+        /**
+         * @param minScale 最小缩放值，相对铺满裁剪框的缩放，小于1时按1
+         * @return 构建器
+         */
+        public Builder setMinScale(float minScale) {
+            this.minScale = minScale;
+            return this;
+        }
+
+        /**
+         * @return 配置
+         */
+        public ClipConfig build() {
+            return new ClipConfig(this);
+        }
+    }
+
+}
@@ -0,0 +1,405 @@
+package com.androidx.clip;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.media.ExifInterface;
+import android.os.Build;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图片解码，按显示尺寸采样解码
+ */
+public class ClipDecoder {
+
+    /**
+     * 读取图片尺寸
+     *
+     * @param path 图片路径
+     * @return 只包含尺寸的解码参数
+     */
+    public static BitmapFactory.Options decodeBounds(String path) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeFile(path, options);
+        return options;
+    }
+
+    /**
+     * 读取图片尺寸
+     *
+     * @param resources 资源
+     * @param resId     资源id
+     * @return 只包含尺寸的解码参数
+     */
+    public static BitmapFactory.Options decodeBounds(Resources resources, int resId) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, resId, options);
+        return options;
+    }
+
+    /**
+     * 读取EXIF方向，不复制图片，由显示与裁剪矩阵旋转、镜像
+     *
+     * @param path 图片路径
+     * @return EXIF方向，没有时为{@link ExifInterface#ORIENTATION_NORMAL}
+     */
+    public static int getOrientation(String path) {
+        if (path == null) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+        try {
+            ExifInterface exif = new ExifInterface(path);
+            return exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            //无法读取EXIF时按正常方向显示
+        }
+        return ExifInterface.ORIENTATION_NORMAL;
+    }
+
+    /**
+     * EXIF方向中的旋转，镜像方向为水平镜像后再旋转
+     *
+     * @param orientation EXIF方向
+     * @return 顺时针旋转角度（0、90、180、270）
+     */
+    public static int getRotation(int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                return 90;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                return 180;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                return 270;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @param orientation EXIF方向
+     * @return 是否需要在旋转前水平镜像
+     */
+    public static boolean isFlipped(int orientation) {
+        return orientation == ExifInterface.ORIENTATION_FLIP_HORIZONTAL
+                || orientation == ExifInterface.ORIENTATION_FLIP_VERTICAL
+                || orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+    }
+
+    /**
+     * 按需要的尺寸与格式解码文件，解码后的图片宽高不小于需要宽高
+     *
+     * @param path      图片路径
+     * @param reqWidth  需要宽度，小于等于0不限制宽度
+     * @param reqHeight 需要高度，小于等于0不限制高度
+     * @param config    图片格式
+     * @param listener  性能数据监听，可为null
+     * @return 图片
+     */
+    public static Bitmap decodeFile(String path, int reqWidth, int reqHeight, Bitmap.Config config, OnMetricsListener listener) {
+        if (path == null) {
+            return null;
+        }
+        long start = listener != null ? System.nanoTime() : 0;
+        ClipTrace.begin(ClipTrace.DECODE);
+        try {
+            BitmapFactory.Options options = decodeBounds(path);
+            if (!prepare(options, reqWidth, reqHeight, config)) {
+                return null;
+            }
+            Bitmap bitmap = null;
+            try {
+                bitmap = BitmapFactory.decodeFile(path, options);
+            } catch (IllegalArgumentException e) {
+                //inBitmap不可复用，下面不使用inBitmap重试
+            }
+            if (bitmap == null && releaseInBitmap(options)) {
+                bitmap = BitmapFactory.decodeFile(path, options);
+            }
+            resetDensity(bitmap, Resources.getSystem());
+            report(listener, options, bitmap, start);
+            return bitmap;
+        } finally {
+            ClipTrace.end();
+        }
+    }
+
+    /**
+     * 按需要的尺寸与格式解码资源，解码后的图片宽高不小于需要宽高
+     *
+     * @param resources 资源
+     * @param resId     资源id
+     * @param reqWidth  需要宽度，小于等于0不限制宽度
+     * @param reqHeight 需要高度，小于等于0不限制高度
+     * @param config    图片格式
+     * @param listener  性能数据监听，可为null
+     * @return 图片
+     */
+    public static Bitmap decodeResource(Resources resources, int resId, int reqWidth, int reqHeight, Bitmap.Config config, OnMetricsListener listener) {
+        if (resId == 0) {
+            return null;
+        }
+        long start = listener != null ? System.nanoTime() : 0;
+        ClipTrace.begin(ClipTrace.DECODE);
+        try {
+            BitmapFactory.Options options = decodeBounds(resources, resId);
+            if (!prepare(options, reqWidth, reqHeight, config)) {
+                return null;
+            }
+            Bitmap bitmap = null;
+            try {
+                bitmap = BitmapFactory.decodeResource(resources, resId, options);
+            } catch (IllegalArgumentException e) {
+                //inBitmap不可复用，下面不使用inBitmap重试
+            }
+            if (bitmap == null && releaseInBitmap(options)) {
+                bitmap = BitmapFactory.decodeResource(resources, resId, options);
+            }
+            resetDensity(bitmap, resources);
+            report(listener, options, bitmap, start);
+            return bitmap;
+        } finally {
+            ClipTrace.end();
+        }
+    }
+
+    /**
+     * 根据图片尺寸设置采样率与目标密度
+     *
+     * @param options   已读取尺寸的解码参数
+     * @param reqWidth  需要宽度，小于等于0不限制宽度
+     * @param reqHeight 需要高度，小于等于0不限制高度
+     * @param config    图片格式
+     * @return 图片是否有效
+     */
+    private static boolean prepare(BitmapFactory.Options options, int reqWidth, int reqHeight, Bitmap.Config config) {
+        int width = options.outWidth;
+        int height = options.outHeight;
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(width, height, reqWidth, reqHeight);
+        //采样后仍大于需要尺寸时，通过密度缩放到刚好不小于需要尺寸，按缩放比例较大的方向计算
+        int sampleWidth = width / options.inSampleSize;
+        int sampleHeight = height / options.inSampleSize;
+        float widthRatio = reqWidth > 0 ? reqWidth * 1.0F / sampleWidth : 0;
+        float heightRatio = reqHeight > 0 ? reqHeight * 1.0F / sampleHeight : 0;
+        float ratio = Math.max(widthRatio, heightRatio);
+        if (ratio > 0 && ratio < 1) {
+            boolean byWidth = widthRatio >= heightRatio;
+            options.inScaled = true;
+            options.inDensity = byWidth ? sampleWidth : sampleHeight;
+            options.inTargetDensity = byWidth ? reqWidth : reqHeight;
+            sampleWidth = (int) (sampleWidth * ratio + 0.5F);
+            sampleHeight = (int) (sampleHeight * ratio + 0.5F);
+        } else {
+            options.inScaled = false;
+        }
+        options.inPreferredConfig = config;
+        if (isHardware(config)) {
+            //硬件图片不可变，不能复用
+            return true;
+        }
+        //复用池中内存足够的Bitmap
+        options.inMutable = true;
+        options.inBitmap = BitmapPool.getDefault().getForDecode(sampleWidth, sampleHeight, config);
+        return true;
+    }
+
+    /**
+     * @param config 图片格式
+     * @return 是否为硬件图片格式（8.0及以上）
+     */
+    public static boolean isHardware(Bitmap.Config config) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.HARDWARE;
+    }
+
+    /**
+     * @param config 图片格式
+     * @return 是否支持透明度
+     */
+    public static boolean hasAlpha(Bitmap.Config config) {
+        return config != Bitmap.Config.RGB_565;
+    }
+
+    /**
+     * 密度缩放解码的图片密度为需要的尺寸，恢复为屏幕密度，BitmapDrawable等按像素大小显示
+     *
+     * @param bitmap    解码结果，可为null
+     * @param resources 资源
+     */
+    private static void resetDensity(Bitmap bitmap, Resources resources) {
+        if (bitmap != null) {
+            bitmap.setDensity(resources.getDisplayMetrics().densityDpi);
+        }
+    }
+
+    /**
+     * 回调解码耗时、采样率与新分配内存
+     *
+     * @param listener 性能数据监听，可为null
+     * @param options  解码参数
+     * @param bitmap   解码结果
+     * @param start    开始时间（纳秒）
+     */
+    private static void report(OnMetricsListener listener, BitmapFactory.Options options, Bitmap bitmap, long start) {
+        if (listener == null || bitmap == null) {
+            return;
+        }
+        long bytes = bitmap == options.inBitmap ? 0 : BitmapPool.getSize(bitmap);
+        listener.onDecode(options.inSampleSize, System.nanoTime() - start, bytes);
+    }
+
+    /**
+     * 复用Bitmap解码失败时归还复用池，重新解码不再复用
+     *
+     * @param options 解码参数
+     * @return 是否需要重新解码
+     */
+    private static boolean releaseInBitmap(BitmapFactory.Options options) {
+        if (options.inBitmap == null) {
+            return false;
+        }
+        BitmapPool.getDefault().put(options.inBitmap);
+        options.inBitmap = null;
+        return true;
+    }
+
+    /**
+     * 计算采样率，采样后的宽高不小于需要宽高
+     *
+     * @param width     图片宽度
+     * @param height    图片高度
+     * @param reqWidth  需要宽度，小于等于0不限制宽度
+     * @param reqHeight 需要高度，小于等于0不限制高度
+     * @return 采样率（2的幂），宽高都不限制时为1
+     */
+    public static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 && reqHeight <= 0) {
+            return inSampleSize;
+        }
+        while ((reqWidth <= 0 || width / (inSampleSize * 2) >= reqWidth) && (reqHeight <= 0 || height / (inSampleSize * 2) >= reqHeight)) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * 创建区域解码器
+     *
+     * @param path 图片路径
+     * @return 区域解码器，失败返回null
+     */
+    public static BitmapRegionDecoder newRegionDecoder(String path) {
+        try {
+            return BitmapRegionDecoder.newInstance(path, false);
+        } catch (IOException e) {
+            //不支持区域解码的格式
+        }
+        return null;
+    }
+
+    /**
+     * 创建区域解码器
+     *
+     * @param resources 资源
+     * @param resId     资源id
+     * @return 区域解码器，失败返回null
+     */
+    public static BitmapRegionDecoder newRegionDecoder(Resources resources, int resId) {
+        InputStream is = null;
+        try {
+            is = resources.openRawResource(resId);
+            return BitmapRegionDecoder.newInstance(is, false);
+        } catch (IOException | Resources.NotFoundException e) {
+            //不支持区域解码的格式或资源不存在
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    //忽略关闭异常
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按格式解码区域，只分配区域大小的内存
+     *
+     * @param decoder   区域解码器
+     * @param rect      原图坐标中的区域
+     * @param reqWidth  需要宽度，小于等于0不限制宽度
+     * @param reqHeight 需要高度，小于等于0不限制高度
+     * @param config    图片格式，不支持硬件格式
+     * @return 区域图片
+     */
+    public static Bitmap decodeRegion(BitmapRegionDecoder decoder, Rect rect, int reqWidth, int reqHeight, Bitmap.Config config) {
+        if (!rect.intersect(0, 0, decoder.getWidth(), decoder.getHeight())) {
+            return null;
+        }
+        ClipTrace.begin(ClipTrace.DECODE_REGION);
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = calculateInSampleSize(rect.width(), rect.height(), reqWidth, reqHeight);
+            options.inPreferredConfig = config;
+            options.inMutable = true;
+            options.inBitmap = BitmapPool.getDefault().getForDecode(rect.width() / options.inSampleSize, rect.height() / options.inSampleSize, config);
+            Bitmap bitmap = null;
+            try {
+                bitmap = decoder.decodeRegion(rect, options);
+            } catch (IllegalArgumentException e) {
+                //inBitmap不可复用，下面不使用inBitmap重试
+            }
+            if (bitmap == null && releaseInBitmap(options)) {
+                bitmap = decoder.decodeRegion(rect, options);
+            }
+            return bitmap;
+        } finally {
+            ClipTrace.end();
+        }
+    }
+
+    /**
+     * 按外接区域解码浮点裁剪区域，并计算裁剪区域在解码图片中的位置；
+     * 超出图片的部分不解码，位置仍对应完整的裁剪区域
+     *
+     * @param decoder   区域解码器
+     * @param rect      原图坐标中的裁剪区域
+     * @param reqWidth  需要宽度，小于等于0不限制宽度
+     * @param reqHeight 需要高度，小于等于0不限制高度
+     * @param config    图片格式，不支持硬件格式
+     * @param relative  输出裁剪区域在解码图片坐标中的位置
+     * @return 区域图片，与图片不相交时返回null
+     */
+    public static Bitmap decodeRegion(BitmapRegionDecoder decoder, RectF rect, int reqWidth, int reqHeight, Bitmap.Config config, RectF relative) {
+        Rect region = new Rect();
+        rect.roundOut(region);
+        Bitmap bitmap = decodeRegion(decoder, region, reqWidth, reqHeight, config);
+        if (bitmap == null) {
+            return null;
+        }
+        //region已限制在图片内，按采样后的实际大小换算
+        float ratioX = bitmap.getWidth() * 1.0F / region.width();
+        float ratioY = bitmap.getHeight() * 1.0F / region.height();
+        relative.set((rect.left - region.left) * ratioX, (rect.top - region.top) * ratioY,
+                (rect.right - region.left) * ratioX, (rect.bottom - region.top) * ratioY);
+        return bitmap;
+    }
+
+}
@@ -0,0 +1,607 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 裁剪引擎，不依赖View，{@link ClipImage}与批量裁剪使用同一套计算与绘制
+ */
+public class ClipEngine {
+
+    /**
+     * 批量裁剪线程池
+     */
+    private final ExecutorService executor;
+    /**
+     * 排队许可，队列满时提交阻塞
+     */
+    private final Semaphore semaphore;
+
+    /**
+     * 线程数为CPU核数，排队数为线程数的2倍
+     */
+    public ClipEngine() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param threads   线程数
+     * @param queueSize 最多排队任务数，超过时{@link #submit(Job, Callback)}阻塞
+     */
+    public ClipEngine(int threads, int queueSize) {
+        threads = Math.max(1, threads);
+        semaphore = new Semaphore(threads + Math.max(0, queueSize));
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ClipEngine-" + count.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * 提交裁剪任务，排队已满时阻塞直到有空位，回调在工作线程；排队中被取消的任务不回调
+     *
+     * @param job      任务
+     * @param callback 回调
+     * @return 任务结果，可用于取消
+     * @throws InterruptedException 等待排队时被中断
+     */
+    public Future<?> submit(final Job job, final Callback callback) throws InterruptedException {
+        semaphore.acquire();
+        FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Bitmap bitmap = clip(job);
+                    if (bitmap == null) {
+                        callback.onError(job, new IllegalStateException("clip area is empty"));
+                    } else {
+                        callback.onClip(job, bitmap);
+                    }
+                } catch (Exception e) {
+                    callback.onError(job, e);
+                } catch (OutOfMemoryError e) {
+                    callback.onError(job, new Exception(e));
+                }
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                //执行完成或排队中被取消时归还许可，取消的任务不会再执行
+                semaphore.release();
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+        return task;
+    }
+
+    /**
+     * 批量提交，排队已满时阻塞
+     *
+     * @param jobs     任务
+     * @param callback 回调
+     * @throws InterruptedException 等待排队时被中断
+     */
+    public void submitAll(List<Job> jobs, Callback callback) throws InterruptedException {
+        for (Job job : jobs) {
+            submit(job, callback);
+        }
+    }
+
+    /**
+     * 不再接收任务，已提交的任务继续执行
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 等待已提交的任务完成
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 是否全部完成
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 执行裁剪任务
+     *
+     * @param job 任务
+     * @return 裁剪图片
+     */
+    public static Bitmap clip(Job job) {
+        if (job.source != null) {
+            return clip(job.source, job.rect, job.rotation, job.flip, job.shape, job.radius, job.clipPath, job.width, job.height, job.config);
+        }
+        return clip(job.path, job.rect, job.rotation, job.flip, job.shape, job.radius, job.clipPath, job.width, job.height, job.config);
+    }
+
+    /**
+     * 从图片文件裁剪并旋转，只解码裁剪区域
+     *
+     * @param path     图片路径
+     * @param rect     原图坐标中的裁剪区域
+     * @param rotation 顺时针旋转角度（90的倍数）
+     * @param flip     是否在旋转前水平镜像
+     * @param shape    图形
+     * @param radius   输出图片中的圆角大小
+     * @param clipPath 自定义图形，图形为{@link ClipShape#PATH}时使用，可为null
+     * @param width    输出宽度
+     * @param height   输出高度
+     * @param config   输出格式，非矩形时始终保留透明度
+     * @return 裁剪图片
+     */
+    public static Bitmap clip(String path, RectF rect, int rotation, boolean flip, ClipShape shape, float radius, ClipPath clipPath, int width, int height, Bitmap.Config config) {
+        BitmapRegionDecoder decoder = ClipDecoder.newRegionDecoder(path);
+        if (decoder == null) {
+            return null;
+        }
+        //区域在原图坐标中，旋转90、270度时输出宽高对应区域的高宽
+        boolean quarter = rotation % 180 != 0;
+        RectF relative = new RectF();
+        Bitmap bitmap = ClipDecoder.decodeRegion(decoder, rect, quarter ? height : width, quarter ? width : height, Bitmap.Config.ARGB_8888, relative);
+        decoder.recycle();
+        if (bitmap == null) {
+            return null;
+        }
+        Bitmap target = clip(bitmap, relative, rotation, flip, shape, radius, clipPath, width, height, config);
+        BitmapPool.getDefault().put(bitmap);
+        return target;
+    }
+
+    /**
+     * 从图片裁剪区域，旋转、缩放到输出大小并裁剪图形
+     *
+     * @param source   图片
+     * @param rect     图片坐标中的裁剪区域
+     * @param rotation 顺时针旋转角度（90的倍数）
+     * @param flip     是否在旋转前水平镜像
+     * @param shape    图形
+     * @param radius   输出图片中的圆角大小
+     * @param clipPath 自定义图形，图形为{@link ClipShape#PATH}时使用，可为null
+     * @param width    输出宽度
+     * @param height   输出高度
+     * @param config   输出格式，非矩形时始终保留透明度
+     * @return 裁剪图片
+     */
+    public static Bitmap clip(Bitmap source, RectF rect, int rotation, boolean flip, ClipShape shape, float radius, ClipPath clipPath, int width, int height, Bitmap.Config config) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        Bitmap target = BitmapPool.getDefault().get(width, height, getOutputConfig(shape, config));
+        if (!clip(source, rect, rotation, flip, shape, radius, clipPath, target)) {
+            BitmapPool.getDefault().put(target);
+            return null;
+        }
+        return target;
+    }
+
+    /**
+     * 单次绘制完成裁剪、旋转、镜像、缩放与图形，自定义图形以缓存的透明度蒙版绘制
+     *
+     * @param source   图片
+     * @param rect     图片坐标中的裁剪区域
+     * @param rotation 顺时针旋转角度（90的倍数）
+     * @param flip     是否在旋转前水平镜像
+     * @param shape    图形
+     * @param radius   输出图片中的圆角大小
+     * @param clipPath 自定义图形，图形为{@link ClipShape#PATH}时使用，可为null
+     * @param dest     输出图片，可变且透明，宽高即输出大小
+     * @return 裁剪区域是否有效
+     */
+    public static boolean clip(Bitmap source, RectF rect, int rotation, boolean flip, ClipShape shape, float radius, ClipPath clipPath, Bitmap dest) {
+        ClipTrace.begin(ClipTrace.CLIP);
+        try {
+            return draw(source, rect, rotation, flip, shape, radius, clipPath, dest);
+        } finally {
+            ClipTrace.end();
+        }
+    }
+
+    /**
+     * 绘制裁剪区域到输出图片
+     *
+     * @param source   图片
+     * @param rect     图片坐标中的裁剪区域
+     * @param rotation 顺时针旋转角度
+     * @param flip     是否在旋转前水平镜像
+     * @param shape    图形
+     * @param radius   输出图片中的圆角大小
+     * @param clipPath 自定义图形
+     * @param dest     输出图片
+     * @return 裁剪区域是否有效
+     */
+    private static boolean draw(Bitmap source, RectF rect, int rotation, boolean flip, ClipShape shape, float radius, ClipPath clipPath, Bitmap dest) {
+        RectF src = new RectF(rect);
+        if (!src.intersect(0, 0, source.getWidth(), source.getHeight()) || src.isEmpty()) {
+            return false;
+        }
+        if (ClipDecoder.isHardware(source.getConfig())) {
+            //硬件图片不能在软件Canvas中绘制，只复制裁剪区域
+            Rect region = new Rect();
+            src.roundOut(region);
+            region.intersect(0, 0, source.getWidth(), source.getHeight());
+            Bitmap copy = Bitmap.createBitmap(source, region.left, region.top, region.width(), region.height()).copy(Bitmap.Config.ARGB_8888, false);
+            RectF relative = new RectF(rect);
+            relative.offset(-region.left, -region.top);
+            boolean result = draw(copy, relative, rotation, flip, shape, radius, clipPath, dest);
+            copy.recycle();
+            return result;
+        }
+        int width = dest.getWidth();
+        int height = dest.getHeight();
+        RectF dst = new RectF(0, 0, width, height);
+        Matrix matrix = new Matrix();
+        getClipMatrix(rect, rotation, flip, width, height, matrix);
+        Canvas canvas = new Canvas(dest);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        if (isRect(shape, clipPath)) {
+            canvas.drawBitmap(source, matrix, paint);
+            return true;
+        }
+        ClipTrace.begin(ClipTrace.SHAPE);
+        //裁剪区域超出图片时，图片以外保持透明，不拉伸边缘像素
+        RectF bounds = new RectF(0, 0, source.getWidth(), source.getHeight());
+        matrix.mapRect(bounds);
+        canvas.clipRect(bounds);
+        BitmapShader shader = new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        shader.setLocalMatrix(matrix);
+        paint.setShader(shader);
+        if (shape == ClipShape.PATH) {
+            //ALPHA_8蒙版以着色器着色，图形按尺寸缓存
+            canvas.drawBitmap(clipPath.getMask(width, height), 0, 0, paint);
+        } else {
+            Path path = new Path();
+            shape.addTo(path, dst, radius);
+            canvas.drawPath(path, paint);
+        }
+        ClipTrace.end();
+        return true;
+    }
+
+    /**
+     * 旋转并裁剪图形，不需要时直接返回原图片，否则单次绘制到新图片，原图片归还复用池
+     *
+     * @param bitmap   图片
+     * @param rotation 顺时针旋转角度（90的倍数）
+     * @param flip     是否在旋转前水平镜像
+     * @param shape    图形
+     * @param radius   圆角大小
+     * @param clipPath 自定义图形，图形为{@link ClipShape#PATH}时使用，可为null
+     * @return 图形图片
+     */
+    public static Bitmap drawShapeBitmap(Bitmap bitmap, int rotation, boolean flip, ClipShape shape, float radius, ClipPath clipPath) {
+        if (bitmap == null || (isRect(shape, clipPath) && rotation == 0 && !flip)) {
+            return bitmap;
+        }
+        boolean quarter = rotation % 180 != 0;
+        int width = quarter ? bitmap.getHeight() : bitmap.getWidth();
+        int height = quarter ? bitmap.getWidth() : bitmap.getHeight();
+        RectF rect = new RectF(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        Bitmap target = clip(bitmap, rect, rotation, flip, shape, radius, clipPath, width, height, getOutputConfig(shape, bitmap.getConfig()));
+        BitmapPool.getDefault().put(bitmap);
+        return target;
+    }
+
+    /**
+     * @param shape    图形
+     * @param clipPath 自定义图形
+     * @return 是否按矩形裁剪，自定义图形未设置时为矩形
+     */
+    public static boolean isRect(ClipShape shape, ClipPath clipPath) {
+        return shape == null || shape == ClipShape.RECT || (shape == ClipShape.PATH && clipPath == null);
+    }
+
+    /**
+     * 裁剪矩阵：裁剪区域绕中心水平镜像、顺时针旋转后缩放到输出大小
+     *
+     * @param rect     图片坐标中的裁剪区域
+     * @param rotation 顺时针旋转角度（90的倍数）
+     * @param flip     是否在旋转前水平镜像
+     * @param width    输出宽度
+     * @param height   输出高度
+     * @param out      图片坐标到输出坐标的矩阵
+     */
+    public static void getClipMatrix(RectF rect, int rotation, boolean flip, int width, int height, Matrix out) {
+        boolean quarter = rotation % 180 != 0;
+        float rotatedWidth = quarter ? rect.height() : rect.width();
+        float rotatedHeight = quarter ? rect.width() : rect.height();
+        out.setTranslate(-rect.centerX(), -rect.centerY());
+        if (flip) {
+            out.postScale(-1, 1);
+        }
+        out.postRotate(rotation);
+        out.postScale(width / rotatedWidth, height / rotatedHeight);
+        out.postTranslate(width / 2F, height / 2F);
+    }
+
+    /**
+     * @param rotation 旋转角度
+     * @return 最接近的90的倍数，范围0-270
+     */
+    public static int normalizeRotation(float rotation) {
+        int quarter = Math.round(rotation / 90F) * 90;
+        return (quarter % 360 + 360) % 360;
+    }
+
+    /**
+     * 输出格式，非矩形需要透明度，硬件格式不能绘制时使用ARGB_8888
+     *
+     * @param shape  图形
+     * @param config 期望格式
+     * @return 输出格式
+     */
+    public static Bitmap.Config getOutputConfig(ClipShape shape, Bitmap.Config config) {
+        if (config == null || ClipDecoder.isHardware(config)) {
+            return Bitmap.Config.ARGB_8888;
+        }
+        if (shape != null && shape != ClipShape.RECT && !ClipDecoder.hasAlpha(config)) {
+            return Bitmap.Config.ARGB_8888;
+        }
+        return config;
+    }
+
+    /**
+     * 计算镜像、旋转后的裁剪区域，位移超出边界时按边界计算
+     *
+     * @param sourceWidth  图片宽度
+     * @param sourceHeight 图片高度
+     * @param scale        缩放值
+     * @param rotation     顺时针旋转角度（90的倍数）
+     * @param flip         是否在旋转前水平镜像
+     * @param moveX        图片中心相对View中心的水平位移
+     * @param moveY        图片中心相对View中心的垂直位移
+     * @param clipWidth    裁剪框宽度
+     * @param clipHeight   裁剪框高度
+     * @param out          图片坐标（未旋转）中的裁剪区域
+     */
+    public static void calculateClipRect(int sourceWidth, int sourceHeight, float scale, int rotation, boolean flip, float moveX, float moveY, int clipWidth, int clipHeight, RectF out) {
+        boolean quarter = rotation % 180 != 0;
+        int rotatedWidth = quarter ? sourceHeight : sourceWidth;
+        int rotatedHeight = quarter ? sourceWidth : sourceHeight;
+        float bitmapW = rotatedWidth * scale;
+        float bitmapH = rotatedHeight * scale;
+        float clampX = clamp(moveX, getLimit(bitmapW, clipWidth));
+        float clampY = clamp(moveY, getLimit(bitmapH, clipHeight));
+        float cropX = Math.max(0, ((bitmapW - clipWidth) / 2.0F - clampX) / scale);
+        float cropY = Math.max(0, ((bitmapH - clipHeight) / 2.0F - clampY) / scale);
+        float cropRight = cropX + clipWidth / scale;
+        float cropBottom = cropY + clipHeight / scale;
+        //旋转后图片坐标转换回原图片坐标
+        switch (rotation) {
+            case 90:
+                out.set(cropY, sourceHeight - cropRight, cropBottom, sourceHeight - cropX);
+                break;
+            case 180:
+                out.set(sourceWidth - cropRight, sourceHeight - cropBottom, sourceWidth - cropX, sourceHeight - cropY);
+                break;
+            case 270:
+                out.set(sourceWidth - cropBottom, cropX, sourceWidth - cropY, cropRight);
+                break;
+            default:
+                out.set(cropX, cropY, cropRight, cropBottom);
+                break;
+        }
+        if (flip) {
+            //镜像后图片坐标转换回原图片坐标
+            out.set(sourceWidth - out.right, out.top, sourceWidth - out.left, out.bottom);
+        }
+    }
+
+    /**
+     * 位移边界
+     *
+     * @param size     缩放后的图片宽或高
+     * @param clipSize 裁剪框宽或高
+     * @return 边界
+     */
+    public static float getLimit(float size, int clipSize) {
+        return Math.abs(size - clipSize) / 2.0F;
+    }
+
+    /**
+     * 限制位移在边界内
+     *
+     * @param move  位移
+     * @param limit 边界
+     * @return 位移
+     */
+    public static float clamp(float move, float limit) {
+        return Math.max(-limit, Math.min(limit, move));
+    }
+
+    /**
+     * 裁剪任务
+     */
+    public static class Job {
+
+        /**
+         * 图片
+         */
+        private Bitmap source;
+        /**
+         * 图片路径
+         */
+        private String path;
+        /**
+         * 裁剪区域（图片坐标）
+         */
+        private final RectF rect;
+        /**
+         * 图形
+         */
+        private final ClipShape shape;
+        /**
+         * 输出图片中的圆角大小
+         */
+        private final float radius;
+        /**
+         * 输出宽高
+         */
+        private final int width, height;
+        /**
+         * 输出格式
+         */
+        private Bitmap.Config config = Bitmap.Config.ARGB_8888;
+        /**
+         * 顺时针旋转角度
+         */
+        private int rotation;
+        /**
+         * 是否在旋转前水平镜像
+         */
+        private boolean flip;
+        /**
+         * 自定义图形
+         */
+        private ClipPath clipPath;
+        /**
+         * 附加数据
+         */
+        private Object tag;
+
+        /**
+         * @param source 图片
+         * @param rect   图片坐标中的裁剪区域
+         * @param shape  图形
+         * @param radius 输出图片中的圆角大小
+         * @param width  输出宽度
+         * @param height 输出高度
+         */
+        public Job(Bitmap source, RectF rect, ClipShape shape, float radius, int width, int height) {
+            this(rect, shape, radius, width, height);
+            this.source = source;
+        }
+
+        /**
+         * @param path   图片路径
+         * @param rect   原图坐标中的裁剪区域
+         * @param shape  图形
+         * @param radius 输出图片中的圆角大小
+         * @param width  输出宽度
+         * @param height 输出高度
+         */
+        public Job(String path, RectF rect, ClipShape shape, float radius, int width, int height) {
+            this(rect, shape, radius, width, height);
+            this.path = path;
+        }
+
+        private Job(RectF rect, ClipShape shape, float radius, int width, int height) {
+            this.rect = new RectF(rect);
+            this.shape = shape == null ? ClipShape.RECT : shape;
+            this.radius = radius;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * 设置输出格式，非矩形时始终保留透明度
+         *
+         * @param config 输出格式
+         */
+        public void setConfig(Bitmap.Config config) {
+            this.config = config;
+        }
+
+        /**
+         * 设置输出旋转，在同一次绘制中完成
+         *
+         * @param rotation 顺时针旋转角度（90的倍数）
+         */
+        public void setRotation(int rotation) {
+            this.rotation = ClipEngine.normalizeRotation(rotation);
+        }
+
+        /**
+         * 设置输出镜像（EXIF镜像方向），在旋转前水平镜像
+         *
+         * @param flip 是否水平镜像
+         */
+        public void setFlip(boolean flip) {
+            this.flip = flip;
+        }
+
+        /**
+         * 设置自定义图形，图形为{@link ClipShape#PATH}时使用
+         *
+         * @param clipPath 自定义图形
+         */
+        public void setClipPath(ClipPath clipPath) {
+            this.clipPath = clipPath;
+        }
+
+        /**
+         * @return 附加数据
+         */
+        public Object getTag() {
+            return tag;
+        }
+
+        /**
+         * 设置附加数据
+         *
+         * @param tag 附加数据
+         */
+        public void setTag(Object tag) {
+            this.tag = tag;
+        }
+
+    }
+
+    /**
+     * 裁剪回调，在工作线程回调
+     */
+    public interface Callback {
+
+        /**
+         * 裁剪完成
+         *
+         * @param job    任务
+         * @param bitmap 裁剪图片
+         */
+        void onClip(Job job, Bitmap bitmap);
+
+        /**
+         * 裁剪失败
+         *
+         * @param job 任务
+         * @param e   异常
+         */
+        void onError(Job job, Exception e);
+
+    }
+
+}
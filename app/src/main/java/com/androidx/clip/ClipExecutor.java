@@ -0,0 +1,74 @@
+package com.androidx.clip;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台线程池，解码等耗时操作在后台执行，结果回到主线程
+ */
+public class ClipExecutor {
+
+    /**
+     * 线程数量
+     */
+    private static final int THREAD_COUNT = 2;
+    /**
+     * 后台线程池
+     */
+    private static ExecutorService executor;
+    /**
+     * 主线程
+     */
+    private static Handler handler;
+
+    /**
+     * @return 后台线程池
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ClipExecutor-" + count.incrementAndGet());
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * 后台执行
+     *
+     * @param runnable 任务
+     * @return 任务结果，可用于取消
+     */
+    public static Future<?> submit(Runnable runnable) {
+        return getExecutor().submit(runnable);
+    }
+
+    /**
+     * 主线程执行
+     *
+     * @param runnable 任务
+     */
+    public static void post(Runnable runnable) {
+        synchronized (ClipExecutor.class) {
+            if (handler == null) {
+                handler = new Handler(Looper.getMainLooper());
+            }
+        }
+        handler.post(runnable);
+    }
+
+}
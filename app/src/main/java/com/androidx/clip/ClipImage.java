@@ -1,29 +1,52 @@
 package com.androidx.clip;
 
+import android.app.Activity;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
-import android.graphics.Rect;
+import android.graphics.Path;
 import android.graphics.RectF;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.TextUtils;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.view.Choreographer;
+import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.animation.DecelerateInterpolator;
+import android.widget.OverScroller;
 
 import androidx.annotation.Nullable;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Future;
+
 /**
  * 剪切图片
  */
-public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestureListener {
+public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestureListener, Choreographer.FrameCallback {
 
-    private static String TAG = ClipImage.class.getSimpleName();
+    /**
+     * 越界拖动阻尼
+     */
+    private static final float OVERSCROLL_FRICTION = 0.35F;
+    /**
+     * 双击缩放动画时长（毫秒）
+     */
+    private static final long ZOOM_DURATION = 220;
     /**
      * 资源Bitmap
      */
@@ -37,25 +60,107 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
      */
     private float scale = 1.77f;
     /**
-     * 最大缩放值
+     * 最大缩放值，相对适配View宽度的缩放
      */
     private float maxScale = 3.0f;
     /**
-     * 最小缩放值
+     * 最小缩放值，相对铺满裁剪框的缩放，小于1时按1
      */
-    private float minScale = 0.65F;
+    private float minScale = 1.0F;
     /**
-     * 按下坐标
+     * 适配View宽度的缩放值，双击还原使用
      */
-    private float downX, downY;
+    private float fitScale = 1.0F;
     /**
-     * 移动坐标
+     * 铺满裁剪框的缩放值，由图片与裁剪框推导
      */
-    private float moveX = 0, moveY = 0;
+    private float clipScale = 1.0F;
+    /**
+     * 当前裁剪配置
+     */
+    private ClipConfig config = new ClipConfig.Builder().build();
+    /**
+     * 待恢复的状态，图片来源一致且测量后恢复
+     */
+    private SavedState restoreState;
+    /**
+     * 双击、惯性手势
+     */
+    private GestureDetector gestureDetector;
+    /**
+     * 速度追踪
+     */
+    private VelocityTracker velocityTracker;
+    /**
+     * 惯性滑动、回弹
+     */
+    private OverScroller scroller;
+    /**
+     * 最小、最大惯性速度
+     */
+    private int minFlingVelocity, maxFlingVelocity;
+    /**
+     * 上一次手指焦点坐标
+     */
+    private float lastFocusX, lastFocusY;
+    /**
+     * 待应用的位移（下一帧应用）
+     */
+    private float pendingDX, pendingDY;
+    /**
+     * 待应用的缩放倍数及焦点（下一帧应用）
+     */
+    private float pendingScale = 1.0F, pendingFocusX, pendingFocusY;
+    /**
+     * 是否手指拖动中
+     */
+    private boolean dragging;
+    /**
+     * 双击缩放动画
+     */
+    private boolean zooming;
+    /**
+     * 双击缩放动画起止值、焦点、开始时间
+     */
+    private float zoomFrom, zoomTo, zoomFocusX, zoomFocusY;
+    private long zoomStartTime;
     /**
-     * 缩放开始
+     * 图片旋转角度（顺时针），静止时为90的倍数
      */
-    private boolean scaleBegin;
+    private float rotation;
+    /**
+     * 图片是否在旋转前水平镜像（EXIF镜像方向）
+     */
+    private boolean flip;
+    /**
+     * 是否开启双指旋转手势
+     */
+    private boolean rotateEnabled;
+    /**
+     * 上一次两指连线角度，少于两指时为NaN
+     */
+    private float lastAngle = Float.NaN;
+    /**
+     * 待应用的旋转角度（下一帧应用）
+     */
+    private float pendingRotation;
+    /**
+     * 旋转动画
+     */
+    private boolean rotating;
+    /**
+     * 旋转动画起止角度、开始时间
+     */
+    private float rotateFrom, rotateTo;
+    private long rotateStartTime;
+    /**
+     * 是否已请求下一帧
+     */
+    private boolean frameScheduled;
+    /**
+     * 移动坐标
+     */
+    private float moveX = 0, moveY = 0;
     /**
      * 裁剪宽度
      */
@@ -64,10 +169,6 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
      * 裁剪高度
      */
     private int clipHeight = 702;
-    /**
-     * 剪裁图片
-     */
-    private Bitmap cropBitmap;
     /**
      * 裁剪图形类型，0：Rect 1:Circle 2:Round
      */
@@ -76,6 +177,93 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
      * 圆角矩形圆角大小
      */
     private float roundRadius = 20;
+    /**
+     * 自定义图形，图形为PATH时使用
+     */
+    private ClipPath clipPath;
+    /**
+     * 图片路径
+     */
+    private String path;
+    /**
+     * 图片资源id
+     */
+    private int resId;
+    /**
+     * 显示图片格式
+     */
+    private Bitmap.Config displayConfig = Bitmap.Config.ARGB_8888;
+    /**
+     * 输出图片格式，非矩形时始终保留透明度
+     */
+    private Bitmap.Config outputConfig = Bitmap.Config.ARGB_8888;
+    /**
+     * 异步加载任务
+     */
+    private Future<?> loadFuture;
+    /**
+     * 异步加载序号，用于丢弃过期结果
+     */
+    private int loadId;
+    /**
+     * 占位颜色，图片未加载时显示
+     */
+    private int placeholderColor = Color.TRANSPARENT;
+    /**
+     * 是否分块显示（超大图片放大后按需解码可见区域）
+     */
+    private boolean tileEnabled;
+    /**
+     * 分块显示，图片来自路径或资源且开启分块时创建
+     */
+    private ClipTiles tiles;
+    /**
+     * 是否生成缩小层级（缩小显示时从层级绘制）
+     */
+    private boolean mipmapEnabled;
+    /**
+     * 层级内存上限（字节），小于0时为显示图片的1/3（可容纳全部层级）
+     */
+    private long mipmapMaxSize = -1;
+    /**
+     * 缩小层级，开启时随图片创建
+     */
+    private ClipPyramid pyramid;
+    /**
+     * 层级绘制矩阵
+     */
+    private final Matrix levelMatrix = new Matrix();
+    /**
+     * 性能数据监听，为null时不统计
+     */
+    private OnMetricsListener metricsListener;
+    /**
+     * 当前手势的触摸事件数与帧数
+     */
+    private int gestureEvents, gestureFrames;
+    /**
+     * 绘制矩阵（复用，避免每帧缩放Bitmap）
+     */
+    private final Matrix matrix = new Matrix();
+    /**
+     * 绘制画笔
+     */
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    /**
+     * 裁剪区域（原图坐标）
+     */
+    private final RectF clipRect = new RectF();
+    /**
+     * 紧凑模式：在同一次绘制中绘制蒙版，不使用单独的蒙版View
+     */
+    private boolean compact;
+    /**
+     * 紧凑模式的蒙版路径（缓存，尺寸、裁剪框、图形变化时重建）
+     */
+    private final Path maskPath = new Path();
+    private final RectF maskRect = new RectF();
+    private final Paint maskPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private boolean maskDirty = true;
 
     public ClipImage(Context context) {
         super(context);
@@ -93,14 +281,29 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
     }
 
     private void initAttributeSet(Context context) {
-        setLayerType(LAYER_TYPE_SOFTWARE, null);
+        maskPaint.setColor(config.getMaskColor());
         detector = new ScaleGestureDetector(context, this);
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                startZoom(e.getX(), e.getY());
+                return true;
+            }
+        });
+        scroller = new OverScroller(context, new DecelerateInterpolator());
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        minFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        maxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
     }
 
     @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        setImageBitmap(source);
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        maskDirty = true;
+        //只在宽度变化时重新适配，重复测量不重置缩放
+        if (w != oldw) {
+            resetScale();
+        }
     }
 
     /**
@@ -116,8 +319,12 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
      * @param resId
      */
     public void setImageResource(int resId) {
-        setImageBitmap(BitmapFactory.decodeResource(getResources(), resId));
-        invalidate();
+        cancelLoad();
+        Bitmap bitmap = ClipCache.take(ClipCache.getKey(getResources(), null, resId));
+        if (bitmap == null) {
+            bitmap = decodeSource(null, resId, getDecodeWidth(), 0, getDecodeConfig(), metricsListener);
+        }
+        setSource(bitmap, null, resId, 0);
     }
 
     /**
@@ -126,27 +333,289 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
      * @param path
      */
     public void setImagePath(String path) {
-        setImageBitmap(BitmapFactory.decodeFile(path));
+        cancelLoad();
+        int orientation = ClipDecoder.getOrientation(path);
+        Bitmap bitmap = ClipCache.take(ClipCache.getKey(getResources(), path, 0));
+        if (bitmap == null) {
+            //解码为原图方向，旋转90、270度时显示宽度对应原图高度
+            boolean quarter = ClipDecoder.getRotation(orientation) % 180 != 0;
+            int width = getDecodeWidth();
+            bitmap = decodeSource(path, 0, quarter ? 0 : width, quarter ? width : 0, getDecodeConfig(), metricsListener);
+        }
+        setSource(bitmap, path, 0, orientation);
+    }
+
+    /**
+     * 异步设置资源，后台解码
+     *
+     * @param resId    资源id
+     * @param listener 加载监听，可为null
+     */
+    public void setImageResourceAsync(int resId, OnImageLoadListener listener) {
+        load(null, resId, listener);
+    }
+
+    /**
+     * 异步设置资源，后台解码
+     *
+     * @param path     图片路径
+     * @param listener 加载监听，可为null
+     */
+    public void setImagePathAsync(String path, OnImageLoadListener listener) {
+        load(path, 0, listener);
+    }
+
+    /**
+     * 后台解码，完成后在主线程设置图片，加载期间显示占位
+     *
+     * @param path     图片路径
+     * @param resId    资源id
+     * @param listener 加载监听
+     */
+    private void load(final String path, final int resId, final OnImageLoadListener listener) {
+        cancelLoad();
+        setSource(null, null, 0, 0);
+        if (listener != null) {
+            listener.onLoading();
+        }
+        //配置变化前保留的图片直接使用
+        Bitmap retained = ClipCache.take(ClipCache.getKey(getResources(), path, resId));
+        if (retained != null) {
+            setSource(retained, path, resId, ClipDecoder.getOrientation(path));
+            if (listener != null) {
+                listener.onLoaded(retained);
+            }
+            return;
+        }
+        final int id = loadId;
+        final Bitmap.Config config = getDecodeConfig();
+        final OnMetricsListener metrics = metricsListener;
+        final int decodeWidth = getDecodeWidth();
+        ClipTrace.beginAsync(ClipTrace.LOAD, id);
+        loadFuture = ClipExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = null;
+                int orientation = 0;
+                Exception exception = null;
+                try {
+                    //先读取方向，解码为原图方向，旋转90、270度时显示宽度对应原图高度
+                    orientation = ClipDecoder.getOrientation(path);
+                    boolean quarter = ClipDecoder.getRotation(orientation) % 180 != 0;
+                    bitmap = decodeSource(path, resId, quarter ? 0 : decodeWidth, quarter ? decodeWidth : 0, config, metrics);
+                } catch (Exception e) {
+                    exception = e;
+                } catch (OutOfMemoryError e) {
+                    exception = new Exception(e);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    ClipTrace.endAsync(ClipTrace.LOAD, id);
+                    return;
+                }
+                final Bitmap result = bitmap;
+                final int resultOrientation = orientation;
+                final Exception error = exception;
+                ClipExecutor.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        ClipTrace.endAsync(ClipTrace.LOAD, id);
+                        if (id != loadId) {
+                            return;
+                        }
+                        loadFuture = null;
+                        if (result == null) {
+                            if (listener != null) {
+                                listener.onError(error != null ? error : new IllegalArgumentException("decode failed: " + (path != null ? path : resId)));
+                            }
+                            return;
+                        }
+                        setSource(result, path, resId, resultOrientation);
+                        if (listener != null) {
+                            listener.onLoaded(result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 解码显示图片，开启共享缓存时先从缓存获取，可在后台线程调用
+     *
+     * @param path      图片路径
+     * @param resId     资源id
+     * @param reqWidth  需要宽度
+     * @param reqHeight 需要高度
+     * @param config    图片格式
+     * @param metrics   性能数据监听，可为null
+     * @return 显示图片
+     */
+    private Bitmap decodeSource(String path, int resId, int reqWidth, int reqHeight, Bitmap.Config config, OnMetricsListener metrics) {
+        Bitmap bitmap = ClipCache.get(getResources(), path, resId, reqWidth, reqHeight, config);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        if (path != null) {
+            bitmap = ClipDecoder.decodeFile(path, reqWidth, reqHeight, config, metrics);
+        } else {
+            bitmap = ClipDecoder.decodeResource(getResources(), resId, reqWidth, reqHeight, config, metrics);
+        }
+        ClipCache.put(getResources(), path, resId, reqWidth, reqHeight, config, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * 取消正在进行的异步加载
+     */
+    public void cancelLoad() {
+        loadId++;
+        if (loadFuture != null) {
+            loadFuture.cancel(true);
+            loadFuture = null;
+        }
+    }
+
+    /**
+     * 设置显示图片格式，下次加载图片时生效，
+     * RGB_565节省一半内存（不支持透明），HARDWARE（8.0及以上）只占用显存
+     *
+     * @param config 图片格式
+     */
+    public void setDisplayConfig(Bitmap.Config config) {
+        this.displayConfig = config == null ? Bitmap.Config.ARGB_8888 : config;
+    }
+
+    /**
+     * @return 解码格式，软件绘制不支持HARDWARE，改用ARGB_8888
+     */
+    private Bitmap.Config getDecodeConfig() {
+        if (ClipDecoder.isHardware(displayConfig) && getLayerType() == LAYER_TYPE_SOFTWARE) {
+            return Bitmap.Config.ARGB_8888;
+        }
+        return displayConfig;
+    }
+
+    /**
+     * 设置输出图片格式，矩形裁剪可使用RGB_565，圆形、圆角始终使用ARGB_8888
+     *
+     * @param config 图片格式
+     */
+    public void setOutputConfig(Bitmap.Config config) {
+        this.outputConfig = config == null ? Bitmap.Config.ARGB_8888 : config;
+    }
+
+    /**
+     * 设置性能数据监听，为null时不统计
+     *
+     * @param listener 性能数据监听
+     */
+    public void setOnMetricsListener(OnMetricsListener listener) {
+        this.metricsListener = listener;
+    }
+
+    /**
+     * 设置占位颜色，图片未加载时显示
+     *
+     * @param color 颜色
+     */
+    public void setPlaceholderColor(int color) {
+        this.placeholderColor = color;
         invalidate();
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelLoad();
+        Choreographer.getInstance().removeFrameCallback(this);
+        frameScheduled = false;
+        scroller.forceFinished(true);
+        zooming = false;
+        if (rotating) {
+            rotating = false;
+            rotateBy(rotateTo - rotation, getWidth() / 2.0F, getHeight() / 2.0F);
+            endRotate();
+        }
+        if (tiles != null) {
+            tiles.clear();
+        }
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * 解码需要的宽度，未测量时使用屏幕宽度
+     *
+     * @return 屏幕上能显示的最大宽度
+     */
+    private int getRequestWidth() {
+        int width = getMeasuredWidth();
+        if (width <= 0) {
+            width = getResources().getDisplayMetrics().widthPixels;
+        }
+        return Math.max(width, clipWidth);
+    }
+
+    /**
+     * 分块缓存需要的高度，未测量时使用屏幕高度
+     *
+     * @return 屏幕上能显示的最大高度
+     */
+    private int getRequestHeight() {
+        int height = getMeasuredHeight();
+        if (height <= 0) {
+            height = getResources().getDisplayMetrics().heightPixels;
+        }
+        return Math.max(height, clipHeight);
+    }
+
+    /**
+     * 图片解码宽度：图片宽度适配View宽度显示，只按宽度采样，高度随图片比例；
+     * 未开启分块时放大到最大缩放也不拉伸图片，由解码限制为不超过原图；
+     * 开启分块时放大后的细节由分块提供，按屏幕解码
+     *
+     * @return 解码需要的宽度（旋转后的显示宽度）
+     */
+    private int getDecodeWidth() {
+        int width = getRequestWidth();
+        return tileEnabled ? width : (int) (width * Math.max(1, maxScale));
+    }
+
+    /**
+     * @return 当前图片的最大缩放值，maxScale相对适配宽度，与图片解码大小无关
+     */
+    private float getMaxZoom() {
+        return fitScale * maxScale;
+    }
+
+    /**
+     * @return 当前图片的最小缩放值，minScale相对铺满裁剪框，不会小于铺满裁剪框的缩放
+     */
+    private float getMinZoom() {
+        return clipScale * Math.max(1, minScale);
+    }
+
+    /**
+     * @return 按当前角度铺满裁剪框的缩放值，宽高都不小于裁剪框，裁剪区域始终在图片内
+     */
+    private float calculateClipScale() {
+        return Math.max(calculateRatio(getRotatedWidth(), clipWidth), calculateRatio(getRotatedHeight(), clipHeight));
+    }
+
     /**
-     * 设置最大缩放值
+     * 设置最大缩放值，相对适配View宽度的缩放，下次加载图片时按此解码
      *
      * @param maxScale
      */
     public void setMaxScale(float maxScale) {
-        this.maxScale = maxScale;
-        invalidate();
+        setConfig(config.newBuilder().setMaxScale(maxScale).build());
     }
 
     /**
-     * 设置最小缩放值
+     * 设置最小缩放值，相对铺满裁剪框的缩放
+     *
      * @param minScale
      */
     public void setMinScale(float minScale) {
-        this.minScale = minScale;
-        invalidate();
+        setConfig(config.newBuilder().setMinScale(minScale).build());
     }
 
     /**
@@ -155,8 +624,7 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
      * @param clipWidth
      */
     public void setClipWidth(int clipWidth) {
-        this.clipWidth = clipWidth;
-        invalidate();
+        setConfig(config.newBuilder().setClipWidth(clipWidth).build());
     }
 
     /**
@@ -165,8 +633,7 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
      * @param clipHeight
      */
     public void setClipHeight(int clipHeight) {
-        this.clipHeight = clipHeight;
-        invalidate();
+        setConfig(config.newBuilder().setClipHeight(clipHeight).build());
     }
 
     /**
@@ -175,18 +642,62 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
      * @param shape
      */
     public void setClipShape(ClipShape shape) {
-        this.clipShape = shape;
+        setConfig(config.newBuilder().setClipShape(shape).build());
+    }
+
+    /**
+     * 设置紧凑模式：图片与蒙版在同一次绘制中完成，蒙版只覆盖裁剪框以外的区域，
+     * 减少单独蒙版View的全屏叠加绘制，蒙版颜色、图形来自{@link #setConfig(ClipConfig)}
+     *
+     * @param compact 是否紧凑模式
+     */
+    public void setCompact(boolean compact) {
+        if (this.compact == compact) {
+            return;
+        }
+        this.compact = compact;
         invalidate();
     }
 
+    /**
+     * 整体应用裁剪配置，只重绘一次；按当前图片重新计算缩放范围
+     *
+     * @param config 裁剪配置
+     */
+    public void setConfig(ClipConfig config) {
+        this.config = config;
+        clipShape = config.getClipShape();
+        roundRadius = config.getRoundRadius();
+        clipPath = config.getClipPath();
+        maxScale = config.getMaxScale();
+        minScale = config.getMinScale();
+        clipWidth = config.getClipWidth();
+        clipHeight = config.getClipHeight();
+        if (source != null && getWidth() > 0) {
+            clipScale = calculateClipScale();
+            zoomTo(scale, getWidth() / 2.0F, getHeight() / 2.0F);
+        }
+        maskPaint.setColor(config.getMaskColor());
+        maskDirty = true;
+        invalidate();
+    }
+
+    /**
+     * 设置自定义图形，图形为{@link ClipShape#PATH}时使用
+     *
+     * @param clipPath 自定义图形
+     */
+    public void setClipPath(ClipPath clipPath) {
+        setConfig(config.newBuilder().setClipPath(clipPath).build());
+    }
+
     /**
      * 设置裁剪矩形图的圆角大小
      *
      * @param radius 圆角大小
      */
     public void setRoundRadius(float radius) {
-        this.roundRadius = radius;
-        invalidate();
+        setConfig(config.newBuilder().setRoundRadius(radius).build());
     }
 
     /**
@@ -195,206 +706,1069 @@ public class ClipImage extends View implements ScaleGestureDetector.OnScaleGestu
      * @param source
      */
     public void setImageBitmap(Bitmap source) {
-        if (getBitmap() == null) {
-            if (source.getWidth() < clipWidth) {
-                source = scale(source, clipWidth / source.getWidth());
+        cancelLoad();
+        setSource(source, null, 0, 0);
+    }
+
+    /**
+     * 设置图片及其来源
+     *
+     * @param source   图片
+     * @param path     图片路径
+     * @param resId    资源id
+     * @param orientation 图片方向（EXIF），决定初始旋转与镜像
+     */
+    private void setSource(Bitmap source, String path, int resId, int orientation) {
+        this.source = source;
+        this.path = path;
+        this.resId = resId;
+        this.rotation = ClipDecoder.getRotation(orientation);
+        this.flip = ClipDecoder.isFlipped(orientation);
+        rotating = false;
+        pendingRotation = 0;
+        updateTiles();
+        updatePyramid();
+        moveX = 0;
+        moveY = 0;
+        resetScale();
+        invalidate();
+    }
+
+    /**
+     * 释放旧的分块，开启分块且图片来自路径或资源时创建新的分块
+     */
+    private void updateTiles() {
+        if (tiles != null) {
+            tiles.release();
+            tiles = null;
+        }
+        if (!tileEnabled || source == null || (path == null && resId == 0)) {
+            return;
+        }
+        //缓存约为三屏分块，与原图大小无关
+        int width = getRequestWidth() + ClipTiles.TILE_SIZE;
+        int height = getRequestHeight() + ClipTiles.TILE_SIZE;
+        int maxSize = width * height * BitmapPool.getBytesPerPixel(displayConfig) * 3;
+        tiles = new ClipTiles(path, getResources(), resId, getDecodeConfig(), maxSize, new ClipTiles.Callback() {
+            @Override
+            public void onTileLoaded() {
+                invalidate();
+            }
+        });
+    }
+
+    /**
+     * 释放旧的层级，开启时为新图片后台生成层级
+     */
+    private void updatePyramid() {
+        if (pyramid != null) {
+            pyramid.release();
+            pyramid = null;
+        }
+        if (!mipmapEnabled || source == null) {
+            return;
+        }
+        long maxSize = mipmapMaxSize < 0 ? BitmapPool.getSize(source) / 3 : mipmapMaxSize;
+        pyramid = new ClipPyramid(source, maxSize, new ClipPyramid.Callback() {
+            @Override
+            public void onLevelBuilt() {
+                invalidate();
+            }
+        });
+    }
+
+    /**
+     * 设置缩小层级，缩小显示时从1/2、1/4…层级绘制，绘制更快且没有锯齿
+     *
+     * @param mipmapEnabled 是否生成层级
+     */
+    public void setMipmapEnabled(boolean mipmapEnabled) {
+        if (this.mipmapEnabled == mipmapEnabled) {
+            return;
+        }
+        this.mipmapEnabled = mipmapEnabled;
+        updatePyramid();
+        invalidate();
+    }
+
+    /**
+     * 设置层级内存上限，超出上限的层级不生成，下次设置图片时生效
+     *
+     * @param maxSize 内存上限（字节），小于0时为显示图片的1/3
+     */
+    public void setMipmapMaxSize(long maxSize) {
+        this.mipmapMaxSize = maxSize;
+    }
+
+    /**
+     * 设置分块显示，超大图片放大后按当前缩放解码可见区域，内存与原图大小无关
+     *
+     * @param tileEnabled 是否分块显示
+     */
+    public void setTileEnabled(boolean tileEnabled) {
+        if (this.tileEnabled == tileEnabled) {
+            return;
+        }
+        this.tileEnabled = tileEnabled;
+        updateTiles();
+        invalidate();
+    }
+
+    /**
+     * 设置双指旋转手势，松手后旋转到最接近的90度
+     *
+     * @param rotateEnabled 是否开启
+     */
+    public void setRotateEnabled(boolean rotateEnabled) {
+        this.rotateEnabled = rotateEnabled;
+    }
+
+    /**
+     * 旋转图片，只改变显示与裁剪矩阵，不复制图片
+     *
+     * @param degrees 顺时针角度，按90度对齐
+     */
+    public void rotate(float degrees) {
+        if (source == null) {
+            return;
+        }
+        float from = rotating ? rotateTo : rotation;
+        startRotate(Math.round((from + degrees) / 90F) * 90F);
+    }
+
+    /**
+     * @return 图片旋转角度（顺时针），包含EXIF方向，动画中为目标角度
+     */
+    public int getImageRotation() {
+        return ClipEngine.normalizeRotation(rotating ? rotateTo : rotation);
+    }
+
+    /**
+     * @return 旋转后的图片宽度
+     */
+    private int getRotatedWidth() {
+        return ClipEngine.normalizeRotation(rotation) % 180 == 0 ? source.getWidth() : source.getHeight();
+    }
+
+    /**
+     * @return 旋转后的图片高度
+     */
+    private int getRotatedHeight() {
+        return ClipEngine.normalizeRotation(rotation) % 180 == 0 ? source.getHeight() : source.getWidth();
+    }
+
+    /**
+     * 重置缩放值，图片宽度适配View宽度
+     */
+    private void resetScale() {
+        if (source == null || getWidth() <= 0) {
+            return;
+        }
+        boolean restore = restoreState != null && TextUtils.equals(restoreState.path, path) && restoreState.resId == resId;
+        if (restore) {
+            rotation = restoreState.rotation;
+        }
+        fitScale = calculateRatio(getRotatedWidth(), getWidth());
+        clipScale = calculateClipScale();
+        scale = Math.max(getMinZoom(), fitScale);
+        if (restore) {
+            scale = Math.max(getMinZoom(), Math.min(getMaxZoom(), restoreState.width / getRotatedWidth()));
+            moveX = restoreState.moveX;
+            moveY = restoreState.moveY;
+        }
+        restoreState = null;
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.path = path;
+        state.resId = resId;
+        state.width = source != null ? scale * getRotatedWidth() : 0;
+        state.moveX = moveX;
+        state.moveY = moveY;
+        state.rotation = getImageRotation();
+        //只在配置变化重建时保留，重建的View设置相同图片时直接取用，不重新解码；仅退到后台时不占用内存
+        if (isChangingConfigurations()) {
+            ClipCache.retain(ClipCache.getKey(getResources(), path, resId), source);
+        }
+        return state;
+    }
+
+    /**
+     * @return 所在Activity是否正在因配置变化（旋转、深色模式）重建
+     */
+    private boolean isChangingConfigurations() {
+        Context context = getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return ((Activity) context).isChangingConfigurations();
             }
-            this.source = source;
+            context = ((ContextWrapper) context).getBaseContext();
         }
-        scale = calculateRatio(source, getMeasuredWidth());
-        minScale = calculateRatio(source, clipWidth);
+        return false;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        restoreState = savedState.width > 0 ? savedState : null;
+        resetScale();
+        invalidate();
+    }
+
+    /**
+     * 保存的状态：图片来源与显示宽度、位移、旋转，显示宽度与解码尺寸无关
+     */
+    public static class SavedState extends BaseSavedState {
+
+        /**
+         * 图片路径
+         */
+        String path;
+        /**
+         * 图片资源id
+         */
+        int resId;
+        /**
+         * 图片显示宽度
+         */
+        float width;
+        /**
+         * 移动坐标
+         */
+        float moveX, moveY;
+        /**
+         * 旋转角度
+         */
+        int rotation;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel source) {
+            super(source);
+            path = source.readString();
+            resId = source.readInt();
+            width = source.readFloat();
+            moveX = source.readFloat();
+            moveY = source.readFloat();
+            rotation = source.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeString(path);
+            out.writeInt(resId);
+            out.writeFloat(width);
+            out.writeFloat(moveX);
+            out.writeFloat(moveY);
+            out.writeInt(rotation);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        if (source == null) {
+            return true;
+        }
+        if (velocityTracker == null) {
+            velocityTracker = VelocityTracker.obtain();
+        }
+        velocityTracker.addMovement(event);
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            scroller.forceFinished(true);
+            zooming = false;
+            rotating = false;
+            dragging = true;
+            gestureEvents = 0;
+            gestureFrames = 0;
+        }
+        gestureEvents++;
         detector.onTouchEvent(event);
-        if (!scaleBegin) {
-            switch (event.getAction()) {
-                case MotionEvent.ACTION_DOWN:
-                    downX = event.getX();
-                    downY = event.getY();
-                    break;
-                case MotionEvent.ACTION_UP:
-                case MotionEvent.ACTION_MOVE:
-                    moveX += (event.getX() - downX) / 10;
-                    moveY += (event.getY() - downY) / 10;
-                    invalidate();
-                    break;
+        gestureDetector.onTouchEvent(event);
+        //多指时取焦点，抬起的手指不参与计算
+        int skipIndex = action == MotionEvent.ACTION_POINTER_UP ? event.getActionIndex() : -1;
+        float sumX = 0, sumY = 0;
+        int count = event.getPointerCount();
+        for (int i = 0; i < count; i++) {
+            if (i != skipIndex) {
+                sumX += event.getX(i);
+                sumY += event.getY(i);
             }
         }
+        int div = skipIndex == -1 ? count : count - 1;
+        float focusX = sumX / div;
+        float focusY = sumY / div;
+        float angle = rotateEnabled ? getAngle(event, skipIndex) : Float.NaN;
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                lastFocusX = focusX;
+                lastFocusY = focusY;
+                lastAngle = Float.NaN;
+                if (getParent() != null) {
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+            case MotionEvent.ACTION_POINTER_UP:
+                lastFocusX = focusX;
+                lastFocusY = focusY;
+                lastAngle = angle;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                pendingDX += focusX - lastFocusX;
+                pendingDY += focusY - lastFocusY;
+                lastFocusX = focusX;
+                lastFocusY = focusY;
+                if (!Float.isNaN(angle) && !Float.isNaN(lastAngle)) {
+                    float delta = angle - lastAngle;
+                    //跨越±180度时取最短方向
+                    if (delta > 180) {
+                        delta -= 360;
+                    } else if (delta < -180) {
+                        delta += 360;
+                    }
+                    pendingRotation += delta;
+                }
+                lastAngle = angle;
+                scheduleFrame();
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                dragging = false;
+                velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+                float vx = action == MotionEvent.ACTION_UP ? velocityTracker.getXVelocity() : 0;
+                float vy = action == MotionEvent.ACTION_UP ? velocityTracker.getYVelocity() : 0;
+                velocityTracker.recycle();
+                velocityTracker = null;
+                applyPending();
+                if (rotation % 90 != 0) {
+                    //旋转手势松手后对齐到最接近的90度，结束后回弹
+                    startRotate(Math.round(rotation / 90F) * 90F);
+                } else if (!zooming) {
+                    settle(vx, vy);
+                }
+                if (metricsListener != null) {
+                    metricsListener.onGesture(gestureEvents, gestureFrames);
+                }
+                break;
+        }
         return true;
     }
 
+    /**
+     * 手指抬起后惯性滑动或回弹到边界内
+     *
+     * @param vx 水平速度
+     * @param vy 垂直速度
+     */
+    private void settle(float vx, float vy) {
+        applyPending();
+        int limitX = (int) getLimitX();
+        int limitY = (int) getLimitY();
+        int startX = Math.round(moveX);
+        int startY = Math.round(moveY);
+        if (Math.abs(vx) > minFlingVelocity || Math.abs(vy) > minFlingVelocity) {
+            scroller.fling(startX, startY, (int) vx, (int) vy, -limitX, limitX, -limitY, limitY, getWidth() / 8, getHeight() / 8);
+        } else {
+            scroller.springBack(startX, startY, -limitX, limitX, -limitY, limitY);
+        }
+        scheduleFrame();
+    }
+
+    /**
+     * 双击缩放：小于放大值时放大，否则还原
+     *
+     * @param focusX 焦点x
+     * @param focusY 焦点y
+     */
+    private void startZoom(float focusX, float focusY) {
+        float target = Math.min(getMaxZoom(), fitScale * 2);
+        zoomFrom = scale;
+        zoomTo = scale < target * 0.99F ? target : fitScale;
+        zoomTo = Math.max(getMinZoom(), Math.min(getMaxZoom(), zoomTo));
+        zoomFocusX = focusX;
+        zoomFocusY = focusY;
+        zoomStartTime = System.nanoTime();
+        zooming = true;
+        scroller.forceFinished(true);
+        scheduleFrame();
+    }
+
+    /**
+     * 以View中心旋转到目标角度
+     *
+     * @param target 目标角度
+     */
+    private void startRotate(float target) {
+        rotateFrom = rotation;
+        rotateTo = target;
+        rotateStartTime = System.nanoTime();
+        rotating = true;
+        scroller.forceFinished(true);
+        scheduleFrame();
+    }
+
+    /**
+     * 旋转结束，角度归一化并按旋转后的宽度更新适配缩放
+     */
+    private void endRotate() {
+        rotation = ClipEngine.normalizeRotation(rotation);
+        if (getWidth() > 0) {
+            fitScale = calculateRatio(getRotatedWidth(), getWidth());
+            clipScale = calculateClipScale();
+            zoomTo(scale, getWidth() / 2.0F, getHeight() / 2.0F);
+        }
+    }
+
+    /**
+     * @param event     触摸事件
+     * @param skipIndex 抬起的手指
+     * @return 前两个手指连线的角度，少于两指时为NaN
+     */
+    private static float getAngle(MotionEvent event, int skipIndex) {
+        int first = -1;
+        int second = -1;
+        int count = event.getPointerCount();
+        for (int i = 0; i < count && second < 0; i++) {
+            if (i == skipIndex) {
+                continue;
+            }
+            if (first < 0) {
+                first = i;
+            } else {
+                second = i;
+            }
+        }
+        if (second < 0) {
+            return Float.NaN;
+        }
+        return (float) Math.toDegrees(Math.atan2(event.getY(second) - event.getY(first), event.getX(second) - event.getX(first)));
+    }
+
+    /**
+     * 请求下一帧，同一帧内的多个触摸事件合并处理
+     */
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        if (source == null) {
+            return;
+        }
+        gestureFrames++;
+        applyPending();
+        boolean running = false;
+        if (zooming) {
+            float fraction = (frameTimeNanos - zoomStartTime) / (ZOOM_DURATION * 1000000F);
+            fraction = Math.max(0, Math.min(1, fraction));
+            //减速插值
+            float interpolation = 1 - (1 - fraction) * (1 - fraction);
+            zoomTo(zoomFrom + (zoomTo - zoomFrom) * interpolation, zoomFocusX, zoomFocusY);
+            zooming = fraction < 1;
+            running = zooming;
+            if (!zooming && !dragging) {
+                settle(0, 0);
+            }
+        }
+        if (rotating) {
+            float fraction = (frameTimeNanos - rotateStartTime) / (ZOOM_DURATION * 1000000F);
+            fraction = Math.max(0, Math.min(1, fraction));
+            float interpolation = 1 - (1 - fraction) * (1 - fraction);
+            rotateBy(rotateFrom + (rotateTo - rotateFrom) * interpolation - rotation, getWidth() / 2.0F, getHeight() / 2.0F);
+            rotating = fraction < 1;
+            running |= rotating;
+            if (!rotating) {
+                endRotate();
+                if (!dragging) {
+                    settle(0, 0);
+                }
+            }
+        }
+        if (scroller.computeScrollOffset()) {
+            moveX = scroller.getCurrX();
+            moveY = scroller.getCurrY();
+            running = true;
+        }
+        invalidate();
+        if (running) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * 应用待处理的位移与缩放
+     */
+    private void applyPending() {
+        if (pendingScale != 1.0F) {
+            zoomTo(scale * pendingScale, pendingFocusX, pendingFocusY);
+            pendingScale = 1.0F;
+        }
+        if (pendingRotation != 0) {
+            rotateBy(pendingRotation, lastFocusX, lastFocusY);
+            pendingRotation = 0;
+        }
+        if (pendingDX != 0 || pendingDY != 0) {
+            moveX = drag(moveX, pendingDX, getLimitX(), getWidth() / 4F);
+            moveY = drag(moveY, pendingDY, getLimitY(), getHeight() / 4F);
+            pendingDX = 0;
+            pendingDY = 0;
+        }
+    }
+
+    /**
+     * 拖动位移，越界部分增加阻尼
+     *
+     * @param move  当前位移
+     * @param delta 位移增量
+     * @param limit 边界
+     * @param over  最大越界距离
+     * @return 新位移
+     */
+    private float drag(float move, float delta, float limit, float over) {
+        float next = move + delta;
+        if ((next > limit && delta > 0) || (next < -limit && delta < 0)) {
+            next = move + delta * OVERSCROLL_FRICTION;
+        }
+        return Math.max(-limit - over, Math.min(limit + over, next));
+    }
+
+    /**
+     * 以焦点为中心缩放，焦点下的图片内容保持不动
+     *
+     * @param target 目标缩放值
+     * @param focusX 焦点x
+     * @param focusY 焦点y
+     */
+    private void zoomTo(float target, float focusX, float focusY) {
+        target = Math.max(getMinZoom(), Math.min(getMaxZoom(), target));
+        float factor = target / scale;
+        float centerX = getWidth() / 2.0F;
+        float centerY = getHeight() / 2.0F;
+        moveX = focusX + (centerX + moveX - focusX) * factor - centerX;
+        moveY = focusY + (centerY + moveY - focusY) * factor - centerY;
+        scale = target;
+    }
+
+    /**
+     * 以焦点为中心旋转，焦点下的图片内容保持不动
+     *
+     * @param degrees 顺时针角度
+     * @param focusX  焦点x
+     * @param focusY  焦点y
+     */
+    private void rotateBy(float degrees, float focusX, float focusY) {
+        double radians = Math.toRadians(degrees);
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+        float centerX = getWidth() / 2.0F;
+        float centerY = getHeight() / 2.0F;
+        float dx = centerX + moveX - focusX;
+        float dy = centerY + moveY - focusY;
+        moveX = focusX + dx * cos - dy * sin - centerX;
+        moveY = focusY + dx * sin + dy * cos - centerY;
+        rotation += degrees;
+    }
+
+    /**
+     * @return 水平位移边界
+     */
+    private float getLimitX() {
+        return ClipEngine.getLimit(getRotatedWidth() * scale, clipWidth);
+    }
+
+    /**
+     * @return 垂直位移边界
+     */
+    private float getLimitY() {
+        return ClipEngine.getLimit(getRotatedHeight() * scale, clipHeight);
+    }
+
+    /**
+     * @return 是否在手势或动画中，此时允许越界显示
+     */
+    private boolean isMoving() {
+        return dragging || zooming || rotating || !scroller.isFinished();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        Paint paint = new Paint();
-        Bitmap bitmap = scale(source, scale);
-        float bitmapW = bitmap.getWidth();
-        float bitmapH = bitmap.getHeight();
-        //默认显示中间位置
-        float left = (getMeasuredWidth() - bitmapW) / 2.0F;
-        float top = (getMeasuredHeight() - bitmapH) / 2.0F;
-        //左右边限制
-        float leftEdge = (bitmapW - clipWidth) / 2.0F;
-        float rightEdge = -(bitmapW - clipWidth) / 2.0F;
-        moveX = moveX > leftEdge ? leftEdge : moveX;
-        moveX = moveX < rightEdge ? rightEdge : moveX;
-        //上下边限制
-        float topEdge = (bitmapH - clipHeight) / 2.0F;
-        float bottomEdge = -(bitmapH - clipHeight) / 2.0F;
-        moveY = moveY > topEdge ? topEdge : moveY;
-        moveY = moveY < bottomEdge ? bottomEdge : moveY;
-        //位移显示
-        float x = left + moveX;
-        float y = top + moveY;
-        canvas.drawBitmap(bitmap, x, y, paint);
-        //剪切图片
-        int cropX = (int) (leftEdge - moveX);
-        int cropY = (int) (topEdge - moveY);
-        cropX = cropX < 0 ? 0 : cropX;
-        cropY = cropY < 0 ? 0 : cropY;
-        Log.i(TAG, "->onDraw cropX=" + cropX + ",cropY=" + cropY);
-        cropBitmap = Bitmap.createBitmap(bitmap, cropX, cropY, clipWidth, clipHeight);
-    }
-
-    /**
-     * @param src 原图片
-     * @return 圆形图片
-     */
-    private Bitmap drawCircleBitmap(Bitmap src) {
-        if (src == null) {
+        if (source == null) {
+            if (placeholderColor != Color.TRANSPARENT) {
+                canvas.drawColor(placeholderColor);
+            }
+            drawMask(canvas);
+            return;
+        }
+        long start = metricsListener != null ? System.nanoTime() : 0;
+        ClipTrace.begin(ClipTrace.DRAW_IMAGE);
+        updateMatrix();
+        Bitmap level = pyramid != null ? pyramid.getLevel(scale) : source;
+        if (level == source) {
+            canvas.drawBitmap(source, matrix, paint);
+        } else {
+            levelMatrix.set(matrix);
+            levelMatrix.preScale(source.getWidth() * 1.0F / level.getWidth(), source.getHeight() * 1.0F / level.getHeight());
+            canvas.drawBitmap(level, levelMatrix, paint);
+        }
+        if (tiles != null) {
+            tiles.draw(canvas, matrix, source.getWidth(), source.getHeight(), getWidth(), getHeight());
+        }
+        ClipTrace.end();
+        drawMask(canvas);
+        if (metricsListener != null) {
+            metricsListener.onFrame(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 紧凑模式下绘制蒙版，奇偶填充只覆盖裁剪框以外的区域
+     *
+     * @param canvas 画布
+     */
+    private void drawMask(Canvas canvas) {
+        if (!compact) {
+            return;
+        }
+        ClipTrace.begin(ClipTrace.DRAW_MASK);
+        if (maskDirty) {
+            ClipMask.buildPath(maskPath, maskRect, getWidth(), getHeight(), clipWidth, clipHeight, clipShape, roundRadius);
+            maskDirty = false;
+        }
+        ClipMask.draw(canvas, maskPath, maskPaint, clipShape, clipPath, getWidth(), getHeight(), clipWidth, clipHeight);
+        ClipTrace.end();
+    }
+
+    /**
+     * 根据缩放和位移更新绘制矩阵与裁剪区域，不分配对象
+     */
+    private void updateMatrix() {
+        //边界限制，手势中允许越界回弹
+        if (!isMoving()) {
+            moveX = ClipEngine.clamp(moveX, getLimitX());
+            moveY = ClipEngine.clamp(moveY, getLimitY());
+        }
+        //图片中心旋转、缩放后，默认显示在中间位置，再位移显示
+        matrix.setTranslate(-source.getWidth() / 2.0F, -source.getHeight() / 2.0F);
+        if (flip) {
+            matrix.postScale(-1, 1);
+        }
+        matrix.postRotate(rotation);
+        matrix.postScale(scale, scale);
+        matrix.postTranslate(getWidth() / 2.0F + moveX, getHeight() / 2.0F + moveY);
+        //剪切区域（原图坐标）
+        ClipEngine.calculateClipRect(source.getWidth(), source.getHeight(), scale, ClipEngine.normalizeRotation(rotation), flip, moveX, moveY, clipWidth, clipHeight, clipRect);
+    }
+
+    /**
+     * 从原图文件中解码裁剪区域
+     *
+     * @param source    显示的图片
+     * @param rect      显示图片坐标中的裁剪区域
+     * @param path      图片路径
+     * @param resId     资源id
+     * @param reqWidth  需要宽度，小于等于0时为原图分辨率
+     * @param reqHeight 需要高度，小于等于0时为原图分辨率
+     * @param config    图片格式
+     * @param relative  输出裁剪区域在解码图片中的位置
+     * @return 包含裁剪区域的原图区域，失败返回null
+     */
+    private Bitmap decodeOriginal(Bitmap source, RectF rect, String path, int resId, int reqWidth, int reqHeight, Bitmap.Config config, RectF relative) {
+        if (path == null && resId == 0) {
             return null;
         }
-        int width = src.getWidth();
-        int height = src.getHeight();
-        Bitmap target = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(target);
-        canvas.drawARGB(0, 0, 0, 0);
-        Paint paint = new Paint();
-        paint.setAntiAlias(true);
-        canvas.drawCircle(width / 2, height / 2, width / 2F, paint);
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
-        Rect srcRect = new Rect(0, 0, width, height);
-        RectF dest = new RectF(0, 0, width, height);
-        canvas.drawBitmap(src, srcRect, dest, paint);
+        BitmapRegionDecoder decoder = path != null ? ClipDecoder.newRegionDecoder(path) : ClipDecoder.newRegionDecoder(getResources(), resId);
+        if (decoder == null) {
+            return null;
+        }
+        float ratioX = decoder.getWidth() * 1.0F / source.getWidth();
+        float ratioY = decoder.getHeight() * 1.0F / source.getHeight();
+        RectF original = new RectF(rect.left * ratioX, rect.top * ratioY, rect.right * ratioX, rect.bottom * ratioY);
+        if (reqWidth <= 0 && reqHeight <= 0) {
+            //原图分辨率时输出像素即原图像素，区域对齐到原图像素
+            original.set(Math.round(original.left), Math.round(original.top), Math.round(original.right), Math.round(original.bottom));
+        }
+        Bitmap bitmap = ClipDecoder.decodeRegion(decoder, original, reqWidth, reqHeight, config, relative);
+        decoder.recycle();
+        return bitmap;
+    }
+
+    /**
+     * 按解码区域中的裁剪区域输出，两者一致时直接旋转、裁剪图形，不再复制
+     *
+     * @param cropBitmap 解码的区域图片，归还复用池或作为结果
+     * @param relative   裁剪区域在区域图片中的位置
+     * @param rotation   顺时针旋转角度（90的倍数）
+     * @param flip       是否在旋转前水平镜像
+     * @param shape      图形
+     * @param radius     裁剪框中的圆角大小
+     * @param clipPath   自定义图形
+     * @param clipWidth  裁剪框宽度
+     * @param config     输出格式
+     * @return 裁剪区域大小的裁剪图片
+     */
+    private static Bitmap clipRegion(Bitmap cropBitmap, RectF relative, int rotation, boolean flip, ClipShape shape, float radius, ClipPath clipPath, int clipWidth, Bitmap.Config config) {
+        boolean quarter = rotation % 180 != 0;
+        int width = Math.round(quarter ? relative.height() : relative.width());
+        int height = Math.round(quarter ? relative.width() : relative.height());
+        float outRadius = radius * width / clipWidth;
+        if (relative.left == 0 && relative.top == 0 && relative.right == cropBitmap.getWidth() && relative.bottom == cropBitmap.getHeight()) {
+            return ClipEngine.drawShapeBitmap(cropBitmap, rotation, flip, shape, outRadius, clipPath);
+        }
+        Bitmap target = ClipEngine.clip(cropBitmap, relative, rotation, flip, shape, outRadius, clipPath, width, height, config);
+        BitmapPool.getDefault().put(cropBitmap);
         return target;
     }
 
     /**
-     * @param src    原图片
-     * @param radius 圆角
-     * @return 矩形圆角图片
+     * 从原图文件中解码裁剪区域，内存只与裁剪区域大小相关
+     *
+     * @param reqWidth  需要宽度，小于等于0时为原图分辨率
+     * @param reqHeight 需要高度，小于等于0时为原图分辨率
+     * @return 原图分辨率的裁剪图片，图片不是来自路径或资源时返回{@link #getClipBitmap()}
      */
-    private Bitmap drawRoundBitmap(Bitmap src, float radius) {
-        if (src == null) {
+    public Bitmap getOriginalClipBitmap(int reqWidth, int reqHeight) {
+        if (source == null) {
             return null;
         }
-        int width = src.getWidth();
-        int height = src.getHeight();
-        Bitmap target = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(target);
-        canvas.drawARGB(0, 0, 0, 0);
-        Paint paint = new Paint();
-        paint.setAntiAlias(true);
-        Rect srcRect = new Rect(0, 0, width, height);
-        RectF dest = new RectF(0, 0, width, height);
-        canvas.drawRoundRect(dest, radius, radius, paint);
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
-        canvas.drawBitmap(src, srcRect, dest, paint);
-        return target;
+        updateMatrix();
+        long start = metricsListener != null ? System.nanoTime() : 0;
+        int rotation = ClipEngine.normalizeRotation(this.rotation);
+        boolean quarter = rotation % 180 != 0;
+        //解码区域为原图方向，需要的宽高随旋转交换
+        Bitmap.Config config = ClipEngine.getOutputConfig(clipShape, outputConfig);
+        RectF relative = new RectF();
+        Bitmap cropBitmap = decodeOriginal(source, clipRect, path, resId, quarter ? reqHeight : reqWidth, quarter ? reqWidth : reqHeight, config, relative);
+        if (cropBitmap == null) {
+            return getClipBitmap();
+        }
+        return reportClip(metricsListener, start, clipRegion(cropBitmap, relative, rotation, flip, clipShape, roundRadius, clipPath, clipWidth, config));
     }
 
     /**
      * @return 裁剪的图片
      */
     public Bitmap getClipBitmap() {
-        if (clipShape == ClipShape.RECT) {
-            return getRectBitmap();
+        if (source == null) {
+            return null;
         }
-        if (clipShape == ClipShape.CIRCLE) {
-            return getCircleBitmap();
+        updateMatrix();
+        long start = metricsListener != null ? System.nanoTime() : 0;
+        return reportClip(metricsListener, start, ClipEngine.clip(source, clipRect, ClipEngine.normalizeRotation(rotation), flip, clipShape, roundRadius, clipPath, clipWidth, clipHeight, outputConfig));
+    }
+
+    /**
+     * 按输出分辨率裁剪，从清晰度足够的图片（显示图片或原图文件区域）一次滤波缩放得到
+     *
+     * @param width  输出宽度
+     * @param height 输出高度
+     * @return 裁剪的图片
+     */
+    public Bitmap getClipBitmap(int width, int height) {
+        if (source == null) {
+            return null;
         }
-        if (clipShape == ClipShape.ROUND) {
-            return getRoundBitmap(roundRadius);
+        updateMatrix();
+        long start = metricsListener != null ? System.nanoTime() : 0;
+        return reportClip(metricsListener, start, renderClip(source, clipRect, ClipEngine.normalizeRotation(rotation), flip, path, resId, clipShape, roundRadius, clipPath, clipWidth, clipHeight, width, height, outputConfig));
+    }
+
+    /**
+     * 渲染裁剪图片，旋转与缩放在同一次绘制中完成，可在后台线程调用
+     *
+     * @param source     显示的图片
+     * @param rect       显示图片坐标中的裁剪区域
+     * @param rotation   顺时针旋转角度（90的倍数）
+     * @param flip       是否在旋转前水平镜像
+     * @param path       图片路径
+     * @param resId      资源id
+     * @param shape      图形
+     * @param radius     裁剪框中的圆角大小
+     * @param clipPath   自定义图形
+     * @param clipWidth  裁剪框宽度
+     * @param clipHeight 裁剪框高度
+     * @param width      输出宽度，小于等于0时为原图分辨率
+     * @param height     输出高度，小于等于0时为原图分辨率
+     * @param config     输出格式
+     * @return 裁剪图片
+     */
+    private Bitmap renderClip(Bitmap source, RectF rect, int rotation, boolean flip, String path, int resId, ClipShape shape, float radius, ClipPath clipPath, int clipWidth, int clipHeight, int width, int height, Bitmap.Config config) {
+        //裁剪区域为原图方向，与输出比较时随旋转交换宽高
+        boolean quarter = rotation % 180 != 0;
+        RectF relative = new RectF();
+        if (width <= 0 || height <= 0) {
+            Bitmap cropBitmap = decodeOriginal(source, rect, path, resId, 0, 0, ClipEngine.getOutputConfig(shape, config), relative);
+            if (cropBitmap != null) {
+                return clipRegion(cropBitmap, relative, rotation, flip, shape, radius, clipPath, clipWidth, ClipEngine.getOutputConfig(shape, config));
+            }
+            return ClipEngine.clip(source, rect, rotation, flip, shape, radius, clipPath, clipWidth, clipHeight, config);
+        }
+        float outRadius = radius * width / clipWidth;
+        float rectWidth = quarter ? rect.height() : rect.width();
+        float rectHeight = quarter ? rect.width() : rect.height();
+        //显示图片清晰度不足时，从原图文件解码裁剪区域（采样后不小于输出大小）
+        if (rectWidth < width || rectHeight < height) {
+            Bitmap cropBitmap = decodeOriginal(source, rect, path, resId, quarter ? height : width, quarter ? width : height, ClipEngine.getOutputConfig(shape, config), relative);
+            if (cropBitmap != null) {
+                Bitmap target = ClipEngine.clip(cropBitmap, relative, rotation, flip, shape, outRadius, clipPath, width, height, config);
+                BitmapPool.getDefault().put(cropBitmap);
+                return target;
+            }
         }
-        return getRectBitmap();
+        return ClipEngine.clip(source, rect, rotation, flip, shape, outRadius, clipPath, width, height, config);
     }
 
     /**
-     * 剪切图片
+     * 裁剪到指定的图片，图片宽高即输出大小
      *
-     * @return
+     * @param dest 可变的透明图片
+     * @return 是否裁剪成功
      */
-    private Bitmap getRectBitmap() {
-        return cropBitmap;
+    public boolean getClipBitmap(Bitmap dest) {
+        if (source == null) {
+            return false;
+        }
+        updateMatrix();
+        long start = metricsListener != null ? System.nanoTime() : 0;
+        boolean clipped = ClipEngine.clip(source, clipRect, ClipEngine.normalizeRotation(rotation), flip, clipShape, roundRadius * dest.getWidth() / clipWidth, clipPath, dest);
+        if (metricsListener != null && clipped) {
+            metricsListener.onClip(System.nanoTime() - start, 0);
+        }
+        return clipped;
     }
 
     /**
-     * @return 圆形图片
+     * 回调裁剪耗时与输出内存
+     *
+     * @param listener 性能数据监听，可为null
+     * @param start    开始时间（纳秒）
+     * @param bitmap   裁剪图片
+     * @return 裁剪图片
      */
-    private Bitmap getCircleBitmap() {
-        return drawCircleBitmap(cropBitmap);
+    private static Bitmap reportClip(OnMetricsListener listener, long start, Bitmap bitmap) {
+        if (listener != null && bitmap != null) {
+            listener.onClip(System.nanoTime() - start, BitmapPool.getSize(bitmap));
+        }
+        return bitmap;
     }
 
     /**
-     * @param radius
-     * @return
+     * 后台裁剪并压缩写入输出流，输出流由调用方关闭
+     *
+     * @param os       输出流
+     * @param format   压缩格式，为null时矩形使用JPEG，圆形、圆角使用保留透明度的PNG
+     * @param quality  压缩质量0-100
+     * @param width    输出宽度，小于等于0时为原图分辨率
+     * @param height   输出高度，小于等于0时为原图分辨率
+     * @param listener 导出监听，可为null
+     * @return 导出任务，可用于取消
      */
-    private Bitmap getRoundBitmap(float radius) {
-        return drawRoundBitmap(cropBitmap, radius);
+    public Future<?> export(OutputStream os, Bitmap.CompressFormat format, int quality, int width, int height, OnExportListener listener) {
+        return export(os, null, format, quality, width, height, listener);
     }
 
     /**
-     * 缩放Bitmap
+     * 后台裁剪并压缩写入文件，文件在后台任务中打开并关闭，失败或取消时删除未写完的文件
      *
-     * @param source 资源
-     * @param scale  缩放比例
-     * @return
+     * @param file     文件
+     * @param format   压缩格式，为null时矩形使用JPEG，圆形、圆角使用保留透明度的PNG
+     * @param quality  压缩质量0-100
+     * @param width    输出宽度，小于等于0时为原图分辨率
+     * @param height   输出高度，小于等于0时为原图分辨率
+     * @param listener 导出监听，可为null
+     * @return 导出任务，可用于取消
      */
-    private Bitmap scale(Bitmap source, float scale) {
-        Matrix matrix = new Matrix();
-        matrix.postScale(scale, scale);
-        return Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, false);
+    public Future<?> export(File file, Bitmap.CompressFormat format, int quality, int width, int height, OnExportListener listener) {
+        return export(null, file, format, quality, width, height, listener);
+    }
+
+    /**
+     * 后台裁剪并压缩写入输出流或文件
+     *
+     * @param output   输出流，为null时写入文件
+     * @param file     文件，output为null时在后台任务中打开，任务结束时关闭
+     * @param format   压缩格式
+     * @param quality  压缩质量0-100
+     * @param width    输出宽度
+     * @param height   输出高度
+     * @param listener 导出监听，可为null
+     * @return 导出任务
+     */
+    private Future<?> export(final OutputStream output, final File file, Bitmap.CompressFormat format, final int quality, final int width, final int height, final OnExportListener listener) {
+        if (source == null) {
+            if (listener != null) {
+                listener.onError(new IllegalStateException("image not loaded"));
+            }
+            return null;
+        }
+        updateMatrix();
+        final Bitmap source = this.source;
+        final RectF rect = new RectF(clipRect);
+        final int rotation = ClipEngine.normalizeRotation(this.rotation);
+        final boolean flip = this.flip;
+        final String path = this.path;
+        final int resId = this.resId;
+        final int clipWidth = this.clipWidth;
+        final int clipHeight = this.clipHeight;
+        final ClipShape shape = clipShape;
+        final float radius = roundRadius;
+        final ClipPath clipPath = this.clipPath;
+        final Bitmap.Config config = outputConfig;
+        final OnMetricsListener metrics = metricsListener;
+        final Bitmap.CompressFormat compressFormat = format != null ? format : getDefaultFormat(shape);
+        return ClipExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Exception exception = null;
+                OutputStream os = output;
+                long start = metrics != null ? System.nanoTime() : 0;
+                ClipTrace.begin(ClipTrace.EXPORT);
+                try {
+                    Bitmap target = reportClip(metrics, start, renderClip(source, rect, rotation, flip, path, resId, shape, radius, clipPath, clipWidth, clipHeight, width, height, config));
+                    if (target == null) {
+                        throw new IllegalStateException("clip area is empty");
+                    }
+                    ClipTrace.begin(ClipTrace.COMPRESS);
+                    boolean compressed;
+                    try {
+                        if (os == null) {
+                            os = new BufferedOutputStream(new FileOutputStream(file));
+                        }
+                        compressed = target.compress(compressFormat, quality, os);
+                        os.flush();
+                    } finally {
+                        ClipTrace.end();
+                        BitmapPool.getDefault().put(target);
+                    }
+                    if (!compressed) {
+                        throw new IOException("compress failed");
+                    }
+                    if (metrics != null) {
+                        metrics.onExport(System.nanoTime() - start);
+                    }
+                } catch (Exception e) {
+                    exception = e;
+                } catch (OutOfMemoryError e) {
+                    exception = new Exception(e);
+                } finally {
+                    if (output == null && os != null) {
+                        close(os);
+                    }
+                    ClipTrace.end();
+                }
+                boolean interrupted = Thread.currentThread().isInterrupted();
+                if (output == null && (exception != null || interrupted)) {
+                    //删除未写完的文件
+                    file.delete();
+                }
+                if (interrupted || listener == null) {
+                    return;
+                }
+                final Exception error = exception;
+                ClipExecutor.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (error == null) {
+                            listener.onExported();
+                        } else {
+                            listener.onError(error);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 关闭输出流
+     *
+     * @param os 输出流
+     */
+    private static void close(OutputStream os) {
+        try {
+            os.close();
+        } catch (IOException e) {
+            //已写入完成，忽略关闭异常
+        }
+    }
+
+    /**
+     * @param shape 图形
+     * @return 默认压缩格式，圆形、圆角保留透明度
+     */
+    private static Bitmap.CompressFormat getDefaultFormat(ClipShape shape) {
+        return shape == ClipShape.RECT ? Bitmap.CompressFormat.JPEG : Bitmap.CompressFormat.PNG;
+    }
+
+    /**
+     * 归还裁剪得到的图片到复用池，归还后不能再使用
+     *
+     * @param bitmap 裁剪图片
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap != null && bitmap != source) {
+            BitmapPool.getDefault().put(bitmap);
+        }
     }
 
     /**
      * 计算缩放比例
      *
-     * @param bitmap   图片
-     * @param reqWidth 需要宽度
+     * @param bitmapWidth 图片宽度（旋转后）
+     * @param reqWidth    需要宽度
      * @return
      */
-    private float calculateRatio(Bitmap bitmap, float reqWidth) {
-        int bitmapWidth = bitmap.getWidth();
+    private float calculateRatio(int bitmapWidth, float reqWidth) {
         float ratio = reqWidth * 1.0F / bitmapWidth * 1.0F;
         return ratio;
     }
 
     @Override
     public boolean onScale(ScaleGestureDetector detector) {
-        float factor = detector.getScaleFactor();
-        if (factor > 1.0F) {
-            scale += factor / 6;
-        } else {
-            scale -= factor / 6;
-        }
-        scale = scale < minScale ? minScale : scale;
-        scale = scale > maxScale ? maxScale : scale;
-        invalidate();
-        return false;
+        pendingScale *= detector.getScaleFactor();
+        pendingFocusX = detector.getFocusX();
+        pendingFocusY = detector.getFocusY();
+        scheduleFrame();
+        return true;
     }
 
     @Override
     public boolean onScaleBegin(ScaleGestureDetector detector) {
-        scaleBegin = true;
+        zooming = false;
         return true;
     }
 
     @Override
     public void onScaleEnd(ScaleGestureDetector detector) {
-        scaleBegin = false;
+
     }
 
 }
-
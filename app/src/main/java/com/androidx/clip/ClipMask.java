@@ -4,9 +4,8 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
-import android.graphics.Rect;
+import android.graphics.Path;
+import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.View;
 
@@ -18,6 +17,18 @@ import androidx.annotation.Nullable;
 public class ClipMask extends View {
 
     private Paint paint;
+    /**
+     * 蒙版路径（缓存，尺寸、图形、圆角变化时重建）
+     */
+    private final Path path = new Path();
+    /**
+     * 裁剪矩形
+     */
+    private final RectF rect = new RectF();
+    /**
+     * 蒙版路径是否需要重建
+     */
+    private boolean dirty = true;
     /**
      * 裁剪宽度
      */
@@ -30,10 +41,6 @@ public class ClipMask extends View {
      * 蒙版颜色
      */
     private int maskColor = Color.parseColor("#8F000000");
-    /**
-     * 矩形位置
-     */
-    private float left, top, right, bottom;
     /**
      * View宽高
      */
@@ -46,6 +53,10 @@ public class ClipMask extends View {
      * 圆角矩形圆角大小
      */
     private float roundRadius = 20;
+    /**
+     * 自定义图形
+     */
+    private ClipPath clipPath;
 
     public ClipMask(Context context) {
         super(context);
@@ -63,68 +74,94 @@ public class ClipMask extends View {
     }
 
     private void initAttributeSet(Context context) {
-        setLayerType(LAYER_TYPE_SOFTWARE, null);
+        paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(maskColor);
     }
 
     @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        width = getMeasuredWidth();
-        height = getMeasuredHeight();
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        width = w;
+        height = h;
+        dirty = true;
     }
 
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setColor(maskColor);
-        canvas.drawRect(0, 0, width, height, paint);
-        left = (width - clipWidth) / 2.0F;
-        top = (height - clipHeight) / 2.0F;
-        right = width / 2.0F + clipWidth / 2.0F;
-        bottom = height / 2.0F + clipHeight / 2.0F;
-        if (clipShape == ClipShape.RECT) {
-            drawRect(canvas);
-        }
-        if (clipShape == ClipShape.CIRCLE) {
-            drawCircle(canvas);
-        }
-        if (clipShape == ClipShape.ROUND) {
-            drawRoundRect(canvas, roundRadius);
+        ClipTrace.begin(ClipTrace.DRAW_MASK);
+        if (dirty) {
+            buildPath();
+            dirty = false;
         }
+        draw(canvas, path, paint, clipShape, clipPath, width, height, clipWidth, clipHeight);
+        ClipTrace.end();
     }
 
     /**
-     * 绘制矩形
+     * 绘制蒙版：路径覆盖裁剪框以外的区域，自定义图形在裁剪框中绘制缓存的轮廓
      *
-     * @param canvas
+     * @param canvas     画布
+     * @param path       {@link #buildPath}构建的蒙版路径
+     * @param paint      蒙版画笔
+     * @param shape      裁剪图形
+     * @param clipPath   自定义图形
+     * @param width      View宽度
+     * @param height     View高度
+     * @param clipWidth  裁剪宽度
+     * @param clipHeight 裁剪高度
+     */
+    public static void draw(Canvas canvas, Path path, Paint paint, ClipShape shape, ClipPath clipPath, float width, float height, int clipWidth, int clipHeight) {
+        canvas.drawPath(path, paint);
+        if (shape == ClipShape.PATH && clipPath != null && clipWidth > 0 && clipHeight > 0) {
+            canvas.drawBitmap(clipPath.getOutline(clipWidth, clipHeight), (width - clipWidth) / 2.0F, (height - clipHeight) / 2.0F, paint);
+        }
+    }
+
+    /**
+     * 构建蒙版路径
      */
-    private void drawRect(Canvas canvas) {
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_OUT));
-        canvas.drawRect(left, top, right, bottom, paint);
+    private void buildPath() {
+        buildPath(path, rect, width, height, clipWidth, clipHeight, clipShape, roundRadius);
     }
 
     /**
-     * 绘制圆形
+     * 构建蒙版路径：奇偶填充，全屏矩形减去居中的裁剪图形，只覆盖裁剪框以外的区域，
+     * 不依赖软件层的DST_OUT混合；自定义图形减去裁剪框矩形
      *
-     * @param canvas
+     * @param path       蒙版路径
+     * @param rect       复用的矩形
+     * @param width      View宽度
+     * @param height     View高度
+     * @param clipWidth  裁剪宽度
+     * @param clipHeight 裁剪高度
+     * @param shape      裁剪图形
+     * @param radius     圆角大小
      */
-    private void drawCircle(Canvas canvas) {
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_OUT));
-        float radius = (clipWidth <= clipHeight ? clipWidth : clipHeight) / 2;
-        canvas.drawCircle(width / 2, height / 2, radius, paint);
+    public static void buildPath(Path path, RectF rect, float width, float height, int clipWidth, int clipHeight, ClipShape shape, float radius) {
+        rect.set((width - clipWidth) / 2.0F, (height - clipHeight) / 2.0F, width / 2.0F + clipWidth / 2.0F, height / 2.0F + clipHeight / 2.0F);
+        path.rewind();
+        path.setFillType(Path.FillType.EVEN_ODD);
+        path.addRect(0, 0, width, height, Path.Direction.CW);
+        (shape == null ? ClipShape.RECT : shape).addTo(path, rect, radius);
     }
 
     /**
-     * 绘制圆角矩形
+     * 整体应用裁剪配置，只重绘一次
      *
-     * @param canvas
-     * @param radius
+     * @param config 裁剪配置
      */
-    private void drawRoundRect(Canvas canvas, float radius) {
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_OUT));
-        canvas.drawRoundRect(left, top, right, bottom, radius, radius, paint);
+    public void setConfig(ClipConfig config) {
+        clipShape = config.getClipShape();
+        clipPath = config.getClipPath();
+        roundRadius = config.getRoundRadius();
+        clipWidth = config.getClipWidth();
+        clipHeight = config.getClipHeight();
+        maskColor = config.getMaskColor();
+        paint.setColor(maskColor);
+        dirty = true;
+        invalidate();
     }
 
     /**
@@ -134,6 +171,17 @@ public class ClipMask extends View {
      */
     public void setClipShape(ClipShape clipShape) {
         this.clipShape = clipShape;
+        dirty = true;
+        invalidate();
+    }
+
+    /**
+     * 设置自定义图形，图形为{@link ClipShape#PATH}时使用
+     *
+     * @param clipPath 自定义图形
+     */
+    public void setClipPath(ClipPath clipPath) {
+        this.clipPath = clipPath;
         invalidate();
     }
 
@@ -144,6 +192,7 @@ public class ClipMask extends View {
      */
     public void setRoundRadius(float roundRadius) {
         this.roundRadius = roundRadius;
+        dirty = true;
         invalidate();
     }
 
@@ -154,6 +203,7 @@ public class ClipMask extends View {
      */
     public void setClipWidth(int width) {
         this.clipWidth = width;
+        dirty = true;
         invalidate();
     }
 
@@ -164,6 +214,7 @@ public class ClipMask extends View {
      */
     public void setClipHeight(int height) {
         this.clipHeight = height;
+        dirty = true;
         invalidate();
     }
 
@@ -174,6 +225,7 @@ public class ClipMask extends View {
      */
     public void setMaskColor(int maskColor) {
         this.maskColor = maskColor;
+        paint.setColor(maskColor);
         invalidate();
     }
 
@@ -0,0 +1,145 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+/**
+ * 自定义裁剪图形：Path或矢量图（心形、六边形、贴纸等），拉伸填满裁剪框；
+ * 输出透明度蒙版与蒙版轮廓按尺寸栅格化为ALPHA_8并缓存，每帧、每次导出不再重新绘制图形
+ */
+public class ClipPath {
+
+    /**
+     * 每种图片缓存的尺寸数量
+     */
+    private static final int CACHE_COUNT = 4;
+
+    /**
+     * 图形路径，使用矢量图时为null
+     */
+    private final Path path;
+    /**
+     * 路径坐标范围，映射到裁剪框
+     */
+    private final RectF viewport;
+    /**
+     * 矢量图，使用路径时为null
+     */
+    private final Drawable drawable;
+    /**
+     * 透明度蒙版（图形内不透明），key为宽高
+     */
+    private final LruCache<Long, Bitmap> masks = new LruCache<>(CACHE_COUNT);
+    /**
+     * 蒙版轮廓（图形外不透明），key为宽高
+     */
+    private final LruCache<Long, Bitmap> outlines = new LruCache<>(CACHE_COUNT);
+
+    /**
+     * @param path 图形路径，路径范围映射到裁剪框
+     */
+    public ClipPath(Path path) {
+        this(path, null);
+    }
+
+    /**
+     * @param path     图形路径
+     * @param viewport 路径坐标范围，为null时为路径范围
+     */
+    public ClipPath(Path path, RectF viewport) {
+        this.path = new Path(path);
+        this.drawable = null;
+        if (viewport == null) {
+            viewport = new RectF();
+            path.computeBounds(viewport, true);
+        }
+        this.viewport = new RectF(viewport);
+    }
+
+    /**
+     * @param drawable 矢量图或其他Drawable，按裁剪框大小绘制
+     */
+    public ClipPath(Drawable drawable) {
+        this.path = null;
+        this.viewport = null;
+        this.drawable = drawable.mutate();
+    }
+
+    /**
+     * @param pathData SVG路径数据（与VectorDrawable的pathData相同）
+     * @return 裁剪图形
+     * @throws IllegalArgumentException 路径数据格式错误
+     */
+    public static ClipPath fromPathData(String pathData) {
+        return new ClipPath(ClipPathParser.createPath(pathData));
+    }
+
+    /**
+     * 获取透明度蒙版，用于输出：以图片着色器绘制，图形外透明
+     *
+     * @param width  宽度
+     * @param height 高度
+     * @return ALPHA_8图片，不能回收
+     */
+    public synchronized Bitmap getMask(int width, int height) {
+        Long key = getKey(width, height);
+        Bitmap mask = masks.get(key);
+        if (mask == null) {
+            mask = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+            Canvas canvas = new Canvas(mask);
+            if (path != null) {
+                Matrix matrix = new Matrix();
+                matrix.setRectToRect(viewport, new RectF(0, 0, width, height), Matrix.ScaleToFit.FILL);
+                Path scaled = new Path();
+                path.transform(matrix, scaled);
+                canvas.drawPath(scaled, new Paint(Paint.ANTI_ALIAS_FLAG));
+            } else {
+                drawable.setBounds(0, 0, width, height);
+                drawable.draw(canvas);
+            }
+            masks.put(key, mask);
+        }
+        return mask;
+    }
+
+    /**
+     * 获取蒙版轮廓，用于显示：以蒙版颜色绘制在裁剪框中，图形内透明
+     *
+     * @param width  宽度
+     * @param height 高度
+     * @return ALPHA_8图片，不能回收
+     */
+    public synchronized Bitmap getOutline(int width, int height) {
+        Long key = getKey(width, height);
+        Bitmap outline = outlines.get(key);
+        if (outline == null) {
+            outline = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+            Canvas canvas = new Canvas(outline);
+            canvas.drawColor(Color.BLACK);
+            Paint paint = new Paint();
+            paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_OUT));
+            canvas.drawBitmap(getMask(width, height), 0, 0, paint);
+            outlines.put(key, outline);
+        }
+        return outline;
+    }
+
+    /**
+     * @param width  宽度
+     * @param height 高度
+     * @return 缓存key
+     */
+    private static Long getKey(int width, int height) {
+        return ((long) width << 32) | height;
+    }
+
+}
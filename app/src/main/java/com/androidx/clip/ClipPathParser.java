@@ -0,0 +1,316 @@
+package com.androidx.clip;
+
+import android.graphics.Path;
+
+/**
+ * SVG路径数据解析（与VectorDrawable的pathData相同），支持M、L、H、V、C、S、Q、T、A、Z的绝对与相对命令，
+ * 只使用框架Path，最低版本可用
+ */
+public class ClipPathParser {
+
+    /**
+     * 路径命令
+     */
+    private static final String COMMANDS = "MmLlHhVvCcSsQqTtAaZz";
+
+    /**
+     * 路径数据
+     */
+    private final String data;
+    /**
+     * 当前解析位置
+     */
+    private int index;
+
+    private ClipPathParser(String data) {
+        this.data = data;
+    }
+
+    /**
+     * 解析路径数据
+     *
+     * @param pathData SVG路径数据
+     * @return 路径
+     * @throws IllegalArgumentException 路径数据格式错误
+     */
+    public static Path createPath(String pathData) {
+        Path path = new Path();
+        new ClipPathParser(pathData).parse(path);
+        return path;
+    }
+
+    /**
+     * @param path 输出路径
+     */
+    private void parse(Path path) {
+        char command = 0;
+        char previous = 0;
+        float x = 0, y = 0;
+        float startX = 0, startY = 0;
+        float controlX = 0, controlY = 0;
+        while (true) {
+            skipSeparators();
+            if (index >= data.length()) {
+                break;
+            }
+            char c = data.charAt(index);
+            if (COMMANDS.indexOf(c) >= 0) {
+                command = c;
+                index++;
+            } else if (command == 0) {
+                throw new IllegalArgumentException("invalid path data at " + index + ": " + data);
+            }
+            boolean relative = Character.isLowerCase(command);
+            float originX = relative ? x : 0;
+            float originY = relative ? y : 0;
+            char type = Character.toUpperCase(command);
+            switch (type) {
+                case 'M':
+                    x = originX + nextFloat();
+                    y = originY + nextFloat();
+                    path.moveTo(x, y);
+                    startX = x;
+                    startY = y;
+                    //之后的坐标对为直线
+                    command = relative ? 'l' : 'L';
+                    break;
+                case 'L':
+                    x = originX + nextFloat();
+                    y = originY + nextFloat();
+                    path.lineTo(x, y);
+                    break;
+                case 'H':
+                    x = originX + nextFloat();
+                    path.lineTo(x, y);
+                    break;
+                case 'V':
+                    y = originY + nextFloat();
+                    path.lineTo(x, y);
+                    break;
+                case 'C': {
+                    float x1 = originX + nextFloat();
+                    float y1 = originY + nextFloat();
+                    controlX = originX + nextFloat();
+                    controlY = originY + nextFloat();
+                    x = originX + nextFloat();
+                    y = originY + nextFloat();
+                    path.cubicTo(x1, y1, controlX, controlY, x, y);
+                    break;
+                }
+                case 'S': {
+                    //第一个控制点为上一段第二个控制点的对称点
+                    boolean smooth = previous == 'C' || previous == 'S';
+                    float x1 = smooth ? 2 * x - controlX : x;
+                    float y1 = smooth ? 2 * y - controlY : y;
+                    controlX = originX + nextFloat();
+                    controlY = originY + nextFloat();
+                    x = originX + nextFloat();
+                    y = originY + nextFloat();
+                    path.cubicTo(x1, y1, controlX, controlY, x, y);
+                    break;
+                }
+                case 'Q':
+                    controlX = originX + nextFloat();
+                    controlY = originY + nextFloat();
+                    x = originX + nextFloat();
+                    y = originY + nextFloat();
+                    path.quadTo(controlX, controlY, x, y);
+                    break;
+                case 'T': {
+                    boolean smooth = previous == 'Q' || previous == 'T';
+                    controlX = smooth ? 2 * x - controlX : x;
+                    controlY = smooth ? 2 * y - controlY : y;
+                    x = originX + nextFloat();
+                    y = originY + nextFloat();
+                    path.quadTo(controlX, controlY, x, y);
+                    break;
+                }
+                case 'A': {
+                    float rx = nextFloat();
+                    float ry = nextFloat();
+                    float angle = nextFloat();
+                    boolean largeArc = nextFlag();
+                    boolean sweep = nextFlag();
+                    float endX = originX + nextFloat();
+                    float endY = originY + nextFloat();
+                    arcTo(path, x, y, rx, ry, angle, largeArc, sweep, endX, endY);
+                    x = endX;
+                    y = endY;
+                    break;
+                }
+                default:
+                    path.close();
+                    x = startX;
+                    y = startY;
+                    //闭合后必须是新的命令
+                    command = 0;
+                    break;
+            }
+            previous = type;
+        }
+    }
+
+    /**
+     * 跳过空白与逗号
+     */
+    private void skipSeparators() {
+        while (index < data.length()) {
+            char c = data.charAt(index);
+            if (c != ',' && !Character.isWhitespace(c)) {
+                break;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * 读取数字，支持省略分隔符（如"-1.5-2"、".5.5"）与指数
+     *
+     * @return 数字
+     */
+    private float nextFloat() {
+        skipSeparators();
+        int start = index;
+        int length = data.length();
+        if (index < length && (data.charAt(index) == '-' || data.charAt(index) == '+')) {
+            index++;
+        }
+        boolean digits = false;
+        boolean dot = false;
+        while (index < length) {
+            char c = data.charAt(index);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+            index++;
+        }
+        if (digits && index < length && (data.charAt(index) == 'e' || data.charAt(index) == 'E')) {
+            int mark = index++;
+            if (index < length && (data.charAt(index) == '-' || data.charAt(index) == '+')) {
+                index++;
+            }
+            int exponent = index;
+            while (index < length && data.charAt(index) >= '0' && data.charAt(index) <= '9') {
+                index++;
+            }
+            if (index == exponent) {
+                index = mark;
+            }
+        }
+        if (!digits) {
+            throw new IllegalArgumentException("invalid number at " + start + ": " + data);
+        }
+        return Float.parseFloat(data.substring(start, index));
+    }
+
+    /**
+     * 读取圆弧标记，可与后面的数字相连（如"a1 1 0 00 1 1"）
+     *
+     * @return 标记
+     */
+    private boolean nextFlag() {
+        skipSeparators();
+        if (index >= data.length() || (data.charAt(index) != '0' && data.charAt(index) != '1')) {
+            throw new IllegalArgumentException("invalid arc flag at " + index + ": " + data);
+        }
+        return data.charAt(index++) == '1';
+    }
+
+    /**
+     * 椭圆弧转换为中心参数，再按不超过90度分段以三次贝塞尔曲线近似
+     *
+     * @param path     路径
+     * @param x0       起点x
+     * @param y0       起点y
+     * @param rx       x半径
+     * @param ry       y半径
+     * @param angle    x轴旋转角度
+     * @param largeArc 是否大弧
+     * @param sweep    是否顺时针
+     * @param x        终点x
+     * @param y        终点y
+     */
+    private static void arcTo(Path path, float x0, float y0, float rx, float ry, float angle, boolean largeArc, boolean sweep, float x, float y) {
+        if (x0 == x && y0 == y) {
+            return;
+        }
+        if (rx == 0 || ry == 0) {
+            path.lineTo(x, y);
+            return;
+        }
+        double radiusX = Math.abs(rx);
+        double radiusY = Math.abs(ry);
+        double phi = Math.toRadians(angle % 360);
+        double cos = Math.cos(phi);
+        double sin = Math.sin(phi);
+        //起点在椭圆坐标系中的位置
+        double dx = (x0 - x) / 2.0;
+        double dy = (y0 - y) / 2.0;
+        double x1 = cos * dx + sin * dy;
+        double y1 = -sin * dx + cos * dy;
+        //半径不足以连接两点时等比放大
+        double lambda = (x1 * x1) / (radiusX * radiusX) + (y1 * y1) / (radiusY * radiusY);
+        if (lambda > 1) {
+            radiusX *= Math.sqrt(lambda);
+            radiusY *= Math.sqrt(lambda);
+        }
+        double rx2 = radiusX * radiusX;
+        double ry2 = radiusY * radiusY;
+        double numerator = rx2 * ry2 - rx2 * y1 * y1 - ry2 * x1 * x1;
+        double denominator = rx2 * y1 * y1 + ry2 * x1 * x1;
+        double coefficient = Math.sqrt(Math.max(0, numerator / denominator));
+        if (largeArc == sweep) {
+            coefficient = -coefficient;
+        }
+        double centerX1 = coefficient * radiusX * y1 / radiusY;
+        double centerY1 = -coefficient * radiusY * x1 / radiusX;
+        double centerX = cos * centerX1 - sin * centerY1 + (x0 + x) / 2.0;
+        double centerY = sin * centerX1 + cos * centerY1 + (y0 + y) / 2.0;
+        double startAngle = Math.atan2((y1 - centerY1) / radiusY, (x1 - centerX1) / radiusX);
+        double endAngle = Math.atan2((-y1 - centerY1) / radiusY, (-x1 - centerX1) / radiusX);
+        double sweepAngle = endAngle - startAngle;
+        if (sweep && sweepAngle < 0) {
+            sweepAngle += 2 * Math.PI;
+        } else if (!sweep && sweepAngle > 0) {
+            sweepAngle -= 2 * Math.PI;
+        }
+        int segments = (int) Math.ceil(Math.abs(sweepAngle) / (Math.PI / 2) - 1e-6);
+        if (segments <= 0) {
+            path.lineTo(x, y);
+            return;
+        }
+        double delta = sweepAngle / segments;
+        double factor = 4.0 / 3.0 * Math.tan(delta / 4);
+        double theta = startAngle;
+        double startX = x0;
+        double startY = y0;
+        for (int i = 0; i < segments; i++) {
+            double cosStart = Math.cos(theta);
+            double sinStart = Math.sin(theta);
+            theta += delta;
+            double cosEnd = Math.cos(theta);
+            double sinEnd = Math.sin(theta);
+            double endX = centerX + radiusX * cos * cosEnd - radiusY * sin * sinEnd;
+            double endY = centerY + radiusX * sin * cosEnd + radiusY * cos * sinEnd;
+            //起点与终点的切线方向
+            double tangentX1 = -radiusX * cos * sinStart - radiusY * sin * cosStart;
+            double tangentY1 = -radiusX * sin * sinStart + radiusY * cos * cosStart;
+            double tangentX2 = -radiusX * cos * sinEnd - radiusY * sin * cosEnd;
+            double tangentY2 = -radiusX * sin * sinEnd + radiusY * cos * cosEnd;
+            if (i == segments - 1) {
+                endX = x;
+                endY = y;
+            }
+            path.cubicTo((float) (startX + factor * tangentX1), (float) (startY + factor * tangentY1),
+                    (float) (endX - factor * tangentX2), (float) (endY - factor * tangentY2),
+                    (float) endX, (float) endY);
+            startX = endX;
+            startY = endY;
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * 图片金字塔：后台逐级生成1/2、1/4…的缩小图，缩小显示时从最接近的层级绘制，
+ * 减少每帧采样的像素并避免缩小时的锯齿
+ */
+public class ClipPyramid {
+
+    /**
+     * 最小层级边长
+     */
+    private static final int MIN_SIZE = 64;
+
+    /**
+     * 层级生成监听，回调在主线程
+     */
+    public interface Callback {
+
+        /**
+         * 层级生成完成，需要重绘
+         */
+        void onLevelBuilt();
+
+    }
+
+    /**
+     * 原图
+     */
+    private final Bitmap source;
+    /**
+     * 缩小的层级，第i层为原图的1/2^(i+1)
+     */
+    private volatile Bitmap[] levels = new Bitmap[0];
+    /**
+     * 是否已释放
+     */
+    private volatile boolean released;
+    /**
+     * 生成任务
+     */
+    private final Future<?> future;
+
+    /**
+     * @param source   原图，硬件图片不生成层级
+     * @param maxSize  层级内存上限（字节）
+     * @param callback 层级生成监听
+     */
+    public ClipPyramid(Bitmap source, final long maxSize, final Callback callback) {
+        this.source = source;
+        if (ClipDecoder.isHardware(source.getConfig())) {
+            future = null;
+            return;
+        }
+        future = ClipExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                build(maxSize);
+                ClipExecutor.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!released) {
+                            callback.onLevelBuilt();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 从上一层滤波缩小一半生成下一层，直到达到最小边长或内存上限
+     *
+     * @param maxSize 内存上限（字节）
+     */
+    private void build(long maxSize) {
+        List<Bitmap> list = new ArrayList<>();
+        Bitmap previous = source;
+        long size = 0;
+        while (!released) {
+            int width = previous.getWidth() / 2;
+            int height = previous.getHeight() / 2;
+            if (width < MIN_SIZE || height < MIN_SIZE) {
+                break;
+            }
+            size += (long) width * height * BitmapPool.getBytesPerPixel(previous.getConfig());
+            if (size > maxSize) {
+                break;
+            }
+            Bitmap level;
+            try {
+                level = Bitmap.createScaledBitmap(previous, width, height, true);
+            } catch (OutOfMemoryError e) {
+                //内存不足时停止生成更小的层级
+                break;
+            }
+            list.add(level);
+            previous = level;
+        }
+        synchronized (this) {
+            if (released) {
+                //未显示过的层级可以直接回收
+                for (Bitmap level : list) {
+                    level.recycle();
+                }
+                return;
+            }
+            levels = list.toArray(new Bitmap[0]);
+        }
+    }
+
+    /**
+     * 获取绘制层级，层级像素不少于显示像素
+     *
+     * @param scale 原图到View的缩放
+     * @return 层级图片，未生成或放大显示时为原图
+     */
+    public Bitmap getLevel(float scale) {
+        Bitmap[] levels = this.levels;
+        int index = -1;
+        float levelScale = scale * 2;
+        while (index + 1 < levels.length && levelScale <= 1) {
+            index++;
+            levelScale *= 2;
+        }
+        return index < 0 ? source : levels[index];
+    }
+
+    /**
+     * 停止生成并丢弃层级，主线程调用；上一帧的显示列表可能仍引用层级，不主动回收，由GC释放
+     */
+    public void release() {
+        synchronized (this) {
+            released = true;
+            levels = new Bitmap[0];
+        }
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+}
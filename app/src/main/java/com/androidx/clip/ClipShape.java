@@ -1,5 +1,8 @@
 package com.androidx.clip;
 
+import android.graphics.Path;
+import android.graphics.RectF;
+
 /**
  * 裁剪图形
  */
@@ -16,7 +19,11 @@ public enum ClipShape {
     /**
      * 圆角
      */
-    ROUND(2);
+    ROUND(2),
+    /**
+     * 自定义图形，由{@link ClipPath}绘制，未设置时按矩形处理
+     */
+    PATH(3);
 
     private int value;
 
@@ -31,4 +38,38 @@ public enum ClipShape {
     public void setValue(int value) {
         this.value = value;
     }
+
+    /**
+     * @param value 图形值，0：Rect 1:Circle 2:Round 3:Path
+     * @return 图形，未知值为矩形
+     */
+    public static ClipShape fromValue(int value) {
+        for (ClipShape shape : values()) {
+            if (shape.value == value) {
+                return shape;
+            }
+        }
+        return RECT;
+    }
+
+    /**
+     * 添加图形到路径，自定义图形按裁剪框矩形添加
+     *
+     * @param path   路径
+     * @param rect   裁剪框
+     * @param radius 圆角大小
+     */
+    public void addTo(Path path, RectF rect, float radius) {
+        switch (this) {
+            case CIRCLE:
+                path.addCircle(rect.centerX(), rect.centerY(), Math.min(rect.width(), rect.height()) / 2F, Path.Direction.CW);
+                break;
+            case ROUND:
+                path.addRoundRect(rect, radius, radius, Path.Direction.CW);
+                break;
+            default:
+                path.addRect(rect, Path.Direction.CW);
+                break;
+        }
+    }
 }
@@ -0,0 +1,340 @@
+package com.androidx.clip;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 分块显示超大图片：显示图片作为最粗一层，放大后按当前缩放对应的采样率解码可见区域的分块，
+ * 分块缓存按内存上限淘汰，与原图大小无关
+ */
+public class ClipTiles {
+
+    /**
+     * 分块边长（分块图片像素）
+     */
+    public static final int TILE_SIZE = 512;
+    /**
+     * 同时解码的最大分块数，快速滑动时不堆积任务
+     */
+    private static final int MAX_PENDING = 4;
+
+    /**
+     * 分块加载监听，回调在主线程
+     */
+    public interface Callback {
+
+        /**
+         * 分块解码完成，需要重绘
+         */
+        void onTileLoaded();
+
+    }
+
+    /**
+     * 图片路径
+     */
+    private final String path;
+    /**
+     * 资源
+     */
+    private final Resources resources;
+    /**
+     * 资源id
+     */
+    private final int resId;
+    /**
+     * 分块格式
+     */
+    private final Bitmap.Config config;
+    /**
+     * 加载监听
+     */
+    private final Callback callback;
+    /**
+     * 分块缓存，key为采样率、行、列；淘汰的分块可能仍在上一帧的显示列表中，不回收，由GC释放
+     */
+    private final LruCache<Long, Bitmap> cache;
+    /**
+     * 解码中的分块
+     */
+    private final Set<Long> pending = new HashSet<>();
+    /**
+     * 区域解码器，后台创建
+     */
+    private volatile BitmapRegionDecoder decoder;
+    /**
+     * 是否已释放
+     */
+    private volatile boolean released;
+    /**
+     * 原图宽高
+     */
+    private int imageWidth, imageHeight;
+    /**
+     * 绘制用的复用对象
+     */
+    private final Matrix inverse = new Matrix();
+    private final RectF visible = new RectF();
+    private final RectF dst = new RectF();
+    private final float[] values = new float[9];
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    /**
+     * @param path      图片路径，为null时使用资源
+     * @param resources 资源
+     * @param resId     资源id
+     * @param config    分块格式，不支持硬件格式
+     * @param maxSize   缓存上限（字节）
+     * @param callback  加载监听
+     */
+    public ClipTiles(String path, Resources resources, int resId, Bitmap.Config config, int maxSize, Callback callback) {
+        this.path = path;
+        this.resources = resources;
+        this.resId = resId;
+        this.config = ClipEngine.getOutputConfig(ClipShape.RECT, config);
+        this.callback = callback;
+        this.cache = new LruCache<Long, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return (int) BitmapPool.getSize(value);
+            }
+        };
+        ClipExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                open();
+            }
+        });
+    }
+
+    /**
+     * 后台创建区域解码器
+     */
+    private void open() {
+        BitmapRegionDecoder regionDecoder = path != null ? ClipDecoder.newRegionDecoder(path) : ClipDecoder.newRegionDecoder(resources, resId);
+        if (regionDecoder == null) {
+            return;
+        }
+        synchronized (this) {
+            if (released) {
+                regionDecoder.recycle();
+                return;
+            }
+            imageWidth = regionDecoder.getWidth();
+            imageHeight = regionDecoder.getHeight();
+            decoder = regionDecoder;
+        }
+        ClipExecutor.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!released) {
+                    callback.onTileLoaded();
+                }
+            }
+        });
+    }
+
+    /**
+     * 在显示图片之上绘制清晰度更高的分块，缺少的分块用已缓存的更粗分块代替，不分配绘制对象
+     *
+     * @param canvas       画布
+     * @param matrix       显示图片到View的矩阵
+     * @param sourceWidth  显示图片宽度
+     * @param sourceHeight 显示图片高度
+     * @param viewWidth    View宽度
+     * @param viewHeight   View高度
+     */
+    public void draw(Canvas canvas, Matrix matrix, int sourceWidth, int sourceHeight, int viewWidth, int viewHeight) {
+        if (decoder == null || released || !matrix.invert(inverse)) {
+            return;
+        }
+        float ratioX = imageWidth * 1.0F / sourceWidth;
+        float ratioY = imageHeight * 1.0F / sourceHeight;
+        matrix.getValues(values);
+        //View像素对应的原图像素，旋转时缩放分布在斜切项中
+        float pixels = ratioX / (float) Math.hypot(values[Matrix.MSCALE_X], values[Matrix.MSKEW_Y]);
+        int sampleSize = 1;
+        while (sampleSize * 2 <= pixels) {
+            sampleSize *= 2;
+        }
+        //显示图片已足够清晰
+        if (sampleSize >= ratioX) {
+            return;
+        }
+        visible.set(0, 0, viewWidth, viewHeight);
+        inverse.mapRect(visible);
+        visible.left = Math.max(0, visible.left * ratioX);
+        visible.top = Math.max(0, visible.top * ratioY);
+        visible.right = Math.min(imageWidth, visible.right * ratioX);
+        visible.bottom = Math.min(imageHeight, visible.bottom * ratioY);
+        if (visible.isEmpty()) {
+            return;
+        }
+        int tile = TILE_SIZE * sampleSize;
+        int startColumn = (int) (visible.left / tile);
+        int endColumn = (int) ((visible.right - 1) / tile);
+        int startRow = (int) (visible.top / tile);
+        int endRow = (int) ((visible.bottom - 1) / tile);
+        canvas.save();
+        canvas.concat(matrix);
+        //先绘制缺少分块的粗分块，再绘制当前分块，避免粗分块覆盖
+        for (int row = startRow; row <= endRow; row++) {
+            for (int column = startColumn; column <= endColumn; column++) {
+                if (cache.get(getKey(sampleSize, row, column)) == null) {
+                    request(sampleSize, row, column);
+                    drawCoarse(canvas, sampleSize, row, column, ratioX, ratioY);
+                }
+            }
+        }
+        for (int row = startRow; row <= endRow; row++) {
+            for (int column = startColumn; column <= endColumn; column++) {
+                Bitmap bitmap = cache.get(getKey(sampleSize, row, column));
+                if (bitmap != null) {
+                    drawTile(canvas, bitmap, sampleSize, row, column, ratioX, ratioY);
+                }
+            }
+        }
+        canvas.restore();
+    }
+
+    /**
+     * 绘制覆盖该分块的已缓存粗分块
+     *
+     * @param canvas     画布
+     * @param sampleSize 采样率
+     * @param row        行
+     * @param column     列
+     * @param ratioX     原图与显示图片宽度比
+     * @param ratioY     原图与显示图片高度比
+     */
+    private void drawCoarse(Canvas canvas, int sampleSize, int row, int column, float ratioX, float ratioY) {
+        for (int coarse = sampleSize * 2, shift = 1; coarse < ratioX; coarse *= 2, shift++) {
+            Bitmap bitmap = cache.get(getKey(coarse, row >> shift, column >> shift));
+            if (bitmap != null) {
+                drawTile(canvas, bitmap, coarse, row >> shift, column >> shift, ratioX, ratioY);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在显示图片坐标中绘制分块
+     *
+     * @param canvas     已应用显示矩阵的画布
+     * @param bitmap     分块图片
+     * @param sampleSize 采样率
+     * @param row        行
+     * @param column     列
+     * @param ratioX     原图与显示图片宽度比
+     * @param ratioY     原图与显示图片高度比
+     */
+    private void drawTile(Canvas canvas, Bitmap bitmap, int sampleSize, int row, int column, float ratioX, float ratioY) {
+        int tile = TILE_SIZE * sampleSize;
+        float left = column * tile;
+        float top = row * tile;
+        float right = Math.min(imageWidth, left + tile);
+        float bottom = Math.min(imageHeight, top + tile);
+        dst.set(left / ratioX, top / ratioY, right / ratioX, bottom / ratioY);
+        canvas.drawBitmap(bitmap, null, dst, paint);
+    }
+
+    /**
+     * 后台解码分块，完成后在主线程加入缓存
+     *
+     * @param sampleSize 采样率
+     * @param row        行
+     * @param column     列
+     */
+    private void request(final int sampleSize, int row, int column) {
+        final Long key = getKey(sampleSize, row, column);
+        if (pending.size() >= MAX_PENDING || pending.contains(key)) {
+            return;
+        }
+        pending.add(key);
+        int tile = TILE_SIZE * sampleSize;
+        final Rect region = new Rect(column * tile, row * tile, Math.min(imageWidth, (column + 1) * tile), Math.min(imageHeight, (row + 1) * tile));
+        final int reqWidth = region.width() / sampleSize;
+        final int reqHeight = region.height() / sampleSize;
+        ClipExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                BitmapRegionDecoder regionDecoder = decoder;
+                Bitmap bitmap = null;
+                if (!released && regionDecoder != null) {
+                    try {
+                        bitmap = ClipDecoder.decodeRegion(regionDecoder, region, reqWidth, reqHeight, config);
+                    } catch (Exception | OutOfMemoryError e) {
+                        //解码失败时不保存该块，下次绘制时重新解码
+                    }
+                }
+                final Bitmap result = bitmap;
+                ClipExecutor.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        pending.remove(key);
+                        if (result == null) {
+                            return;
+                        }
+                        if (released) {
+                            //未显示过的分块可以直接回收
+                            result.recycle();
+                            return;
+                        }
+                        cache.put(key, result);
+                        callback.onTileLoaded();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @param sampleSize 采样率
+     * @param row        行
+     * @param column     列
+     * @return 缓存key
+     */
+    private static Long getKey(int sampleSize, int row, int column) {
+        return ((long) sampleSize << 48) | ((long) row << 24) | column;
+    }
+
+    /**
+     * 清空分块缓存，保留解码器
+     */
+    public void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * 释放分块缓存与解码器，主线程调用
+     */
+    public void release() {
+        final BitmapRegionDecoder regionDecoder;
+        synchronized (this) {
+            released = true;
+            regionDecoder = decoder;
+            decoder = null;
+        }
+        cache.evictAll();
+        if (regionDecoder != null) {
+            //回收会等待进行中的解码，在后台执行
+            ClipExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    regionDecoder.recycle();
+                }
+            });
+        }
+    }
+
+}
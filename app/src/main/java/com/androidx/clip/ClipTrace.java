@@ -0,0 +1,113 @@
+package com.androidx.clip;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * 系统Trace标记（Perfetto/Systrace中可见），默认关闭，关闭时只有一次判断
+ */
+public class ClipTrace {
+
+    /**
+     * 解码显示图片
+     */
+    public static final String DECODE = "ClipDecoder:decode";
+    /**
+     * 解码原图区域
+     */
+    public static final String DECODE_REGION = "ClipDecoder:decodeRegion";
+    /**
+     * 后台异步解码（异步标记，从提交到主线程设置图片）
+     */
+    public static final String LOAD = "ClipImage:load";
+    /**
+     * 图片绘制
+     */
+    public static final String DRAW_IMAGE = "ClipImage:onDraw";
+    /**
+     * 蒙版绘制
+     */
+    public static final String DRAW_MASK = "ClipMask:onDraw";
+    /**
+     * 裁剪输出
+     */
+    public static final String CLIP = "ClipEngine:clip";
+    /**
+     * 圆形、圆角图形绘制
+     */
+    public static final String SHAPE = "ClipEngine:shape";
+    /**
+     * 导出（裁剪、压缩、写入）
+     */
+    public static final String EXPORT = "ClipImage:export";
+    /**
+     * 压缩写入
+     */
+    public static final String COMPRESS = "ClipImage:compress";
+
+    /**
+     * 是否开启
+     */
+    private static volatile boolean enabled;
+
+    /**
+     * 开启或关闭Trace标记，应在绘制、加载开始前设置，避免标记不成对
+     *
+     * @param enabled 是否开启
+     */
+    public static void setEnabled(boolean enabled) {
+        ClipTrace.enabled = enabled;
+    }
+
+    /**
+     * @return 是否开启
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开始同步标记，与{@link #end()}在同一线程成对调用
+     *
+     * @param name 名称
+     */
+    public static void begin(String name) {
+        if (enabled) {
+            Trace.beginSection(name);
+        }
+    }
+
+    /**
+     * 结束同步标记
+     */
+    public static void end() {
+        if (enabled) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * 开始异步标记（10.0及以上），可在其他线程结束
+     *
+     * @param name   名称
+     * @param cookie 同名标记的区分值
+     */
+    public static void beginAsync(String name, int cookie) {
+        if (enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    /**
+     * 结束异步标记
+     *
+     * @param name   名称
+     * @param cookie 同名标记的区分值
+     */
+    public static void endAsync(String name, int cookie) {
+        if (enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+
+}
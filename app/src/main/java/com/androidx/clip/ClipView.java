@@ -3,13 +3,21 @@ package com.androidx.clip;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
-import android.graphics.Color;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.widget.FrameLayout;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.content.res.AppCompatResources;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.concurrent.Future;
 
 /**
  * 裁剪
@@ -25,37 +33,41 @@ public class ClipView extends FrameLayout {
      */
     private ClipMask clipMask;
     /**
-     * 裁剪宽度
+     * 裁剪配置
      */
-    private int clipWidth = 702;
+    private ClipConfig config = new ClipConfig.Builder().build();
     /**
-     * 裁剪高度
+     * 图片资源
      */
-    private int clipHeight = 702;
+    private int resId;
     /**
-     * 蒙版颜色
+     * 是否使用软件绘制
      */
-    private int maskColor = Color.parseColor("#8F000000");
+    private boolean softwareRender;
     /**
-     * 最大缩放值
+     * 显示图片格式，0：ARGB_8888 1:RGB_565 2:HARDWARE
      */
-    private float maxScale = 3.0f;
+    private int displayConfig;
     /**
-     * 最小缩放值
+     * 输出图片格式，0：ARGB_8888 1:RGB_565
      */
-    private float minScale = 0.65F;
+    private int outputConfig;
     /**
-     * 裁剪图形类型，0：Rect 1:Circle 2:Round
+     * 是否分块显示
      */
-    private ClipShape clipShape = ClipShape.RECT;
+    private boolean tileEnabled;
     /**
-     * 圆角矩形圆角大小
+     * 是否生成缩小层级
      */
-    private float roundRadius = 20;
+    private boolean mipmapEnabled;
     /**
-     * 图片资源
+     * 是否开启双指旋转
      */
-    private int resId;
+    private boolean rotateEnabled;
+    /**
+     * 是否紧凑模式（单View绘制图片与蒙版）
+     */
+    private boolean compact;
 
 
     public ClipView(@NonNull Context context) {
@@ -79,48 +91,195 @@ public class ClipView extends FrameLayout {
     }
 
     protected void initAttributeSet(Context context, AttributeSet attrs) {
-        setLayerType(LAYER_TYPE_SOFTWARE, null);
         LayoutInflater.from(context).inflate(R.layout.view_clip, this, true);
         clipImage = findViewById(R.id.clip_img);
         clipMask = findViewById(R.id.clip_mask);
         if (attrs != null) {
             TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.ClipView);
-            clipWidth = array.getDimensionPixelOffset(R.styleable.ClipView_clipWidth, clipWidth);
-            clipHeight = array.getDimensionPixelOffset(R.styleable.ClipView_clipHeight, clipHeight);
-            maskColor = array.getColor(R.styleable.ClipView_maskColor, maskColor);
-            maxScale = array.getFloat(R.styleable.ClipView_maxScale, maxScale);
-            minScale = array.getFloat(R.styleable.ClipView_minScale, minScale);
-            int shape = array.getInt(R.styleable.ClipView_clipShape, 0);
-            if (shape == 0) {
-                clipShape = ClipShape.RECT;
-            }
-            if (shape == 1) {
-                clipShape = ClipShape.CIRCLE;
-            }
-            if (shape == 2) {
-                clipShape = ClipShape.ROUND;
+            ClipConfig.Builder builder = config.newBuilder()
+                    .setClipWidth(array.getDimensionPixelOffset(R.styleable.ClipView_clipWidth, config.getClipWidth()))
+                    .setClipHeight(array.getDimensionPixelOffset(R.styleable.ClipView_clipHeight, config.getClipHeight()))
+                    .setMaskColor(array.getColor(R.styleable.ClipView_maskColor, config.getMaskColor()))
+                    .setMaxScale(array.getFloat(R.styleable.ClipView_maxScale, config.getMaxScale()))
+                    .setMinScale(array.getFloat(R.styleable.ClipView_minScale, config.getMinScale()))
+                    .setClipShape(ClipShape.fromValue(array.getInt(R.styleable.ClipView_clipShape, 0)))
+                    .setRoundRadius(array.getDimension(R.styleable.ClipView_roundRadius, config.getRoundRadius()));
+            //自定义图形：路径数据优先，其次矢量图
+            String pathData = array.getString(R.styleable.ClipView_clipPathData);
+            int drawableId = array.getResourceId(R.styleable.ClipView_clipDrawable, 0);
+            if (pathData != null) {
+                builder.setClipPath(ClipPath.fromPathData(pathData));
+            } else if (drawableId != 0) {
+                builder.setClipPath(new ClipPath(AppCompatResources.getDrawable(context, drawableId)));
             }
-            roundRadius = array.getDimension(R.styleable.ClipView_roundRadius, roundRadius);
+            config = builder.build();
             resId = array.getResourceId(R.styleable.ClipView_clipSrc, 0);
+            softwareRender = array.getBoolean(R.styleable.ClipView_softwareRender, softwareRender);
+            displayConfig = array.getInt(R.styleable.ClipView_displayConfig, displayConfig);
+            outputConfig = array.getInt(R.styleable.ClipView_outputConfig, outputConfig);
+            tileEnabled = array.getBoolean(R.styleable.ClipView_tileEnabled, tileEnabled);
+            mipmapEnabled = array.getBoolean(R.styleable.ClipView_mipmapEnabled, mipmapEnabled);
+            rotateEnabled = array.getBoolean(R.styleable.ClipView_rotateEnabled, rotateEnabled);
+            compact = array.getBoolean(R.styleable.ClipView_compact, compact);
             array.recycle();
         }
-        setClipWidth(clipWidth);
-        setClipHeight(clipHeight);
-        setMaskColor(maskColor);
-        setMaxScale(maxScale);
-        setMinScale(minScale);
-        setClipShape(clipShape);
-        setRoundRadius(roundRadius);
+        //一次应用全部裁剪配置，图片与蒙版各重绘一次
+        clipImage.setConfig(config);
+        clipMask.setConfig(config);
+        setSoftwareRender(softwareRender);
+        setCompact(compact);
+        setDisplayConfig(toConfig(displayConfig));
+        setOutputConfig(toConfig(outputConfig));
+        setTileEnabled(tileEnabled);
+        setMipmapEnabled(mipmapEnabled);
+        setRotateEnabled(rotateEnabled);
         setImageResource(resId);
     }
 
+    /**
+     * 设置是否使用软件绘制，默认硬件加速绘制，
+     * 软件绘制作为旧系统或硬件绘制异常设备的兼容方案
+     *
+     * @param softwareRender 是否软件绘制
+     */
+    public void setSoftwareRender(boolean softwareRender) {
+        this.softwareRender = softwareRender;
+        int layerType = softwareRender ? LAYER_TYPE_SOFTWARE : LAYER_TYPE_NONE;
+        setLayerType(layerType, null);
+        clipImage.setLayerType(layerType, null);
+        clipMask.setLayerType(layerType, null);
+    }
+
+    /**
+     * 设置紧凑模式：图片与蒙版在ClipImage的同一次绘制中完成，蒙版只覆盖裁剪框以外的区域，
+     * 蒙版View隐藏，减少全屏叠加绘制；蒙版颜色、图形通过ClipView或{@link #setConfig(ClipConfig)}设置
+     *
+     * @param compact 是否紧凑模式
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+        clipImage.setCompact(compact);
+        clipMask.setVisibility(compact ? GONE : VISIBLE);
+    }
+
+    /**
+     * @param value 格式值，0：ARGB_8888 1:RGB_565 2:HARDWARE（8.0以下为ARGB_8888）
+     * @return 图片格式
+     */
+    private Bitmap.Config toConfig(int value) {
+        if (value == 1) {
+            return Bitmap.Config.RGB_565;
+        }
+        if (value == 2 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return Bitmap.Config.HARDWARE;
+        }
+        return Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * 设置分块显示，超大图片放大后按当前缩放解码可见区域，内存与原图大小无关
+     *
+     * @param tileEnabled 是否分块显示
+     */
+    public void setTileEnabled(boolean tileEnabled) {
+        clipImage.setTileEnabled(tileEnabled);
+    }
+
+    /**
+     * 设置缩小层级，缩小显示时从1/2、1/4…层级绘制，绘制更快且没有锯齿
+     *
+     * @param mipmapEnabled 是否生成层级
+     */
+    public void setMipmapEnabled(boolean mipmapEnabled) {
+        clipImage.setMipmapEnabled(mipmapEnabled);
+    }
+
+    /**
+     * 设置双指旋转手势，松手后旋转到最接近的90度
+     *
+     * @param rotateEnabled 是否开启
+     */
+    public void setRotateEnabled(boolean rotateEnabled) {
+        clipImage.setRotateEnabled(rotateEnabled);
+    }
+
+    /**
+     * 旋转图片，只改变显示与裁剪矩阵，导出时在同一次绘制中旋转
+     *
+     * @param degrees 顺时针角度，按90度对齐
+     */
+    public void rotate(float degrees) {
+        clipImage.rotate(degrees);
+    }
+
+    /**
+     * @return 图片旋转角度（顺时针），包含EXIF方向
+     */
+    public int getImageRotation() {
+        return clipImage.getImageRotation();
+    }
+
+    /**
+     * 设置层级内存上限，下次设置图片时生效
+     *
+     * @param maxSize 内存上限（字节），小于0时为显示图片的1/3
+     */
+    public void setMipmapMaxSize(long maxSize) {
+        clipImage.setMipmapMaxSize(maxSize);
+    }
+
+    /**
+     * 设置性能数据监听（绘制、解码、裁剪、导出耗时，内存与手势事件数），为null时不统计
+     *
+     * @param listener 性能数据监听
+     */
+    public void setOnMetricsListener(OnMetricsListener listener) {
+        clipImage.setOnMetricsListener(listener);
+    }
+
+    /**
+     * 设置显示图片格式，下次加载图片时生效
+     *
+     * @param config 图片格式
+     */
+    public void setDisplayConfig(Bitmap.Config config) {
+        clipImage.setDisplayConfig(config);
+    }
+
+    /**
+     * 设置输出图片格式，矩形裁剪可使用RGB_565，圆形、圆角始终使用ARGB_8888
+     *
+     * @param config 图片格式
+     */
+    public void setOutputConfig(Bitmap.Config config) {
+        clipImage.setOutputConfig(config);
+    }
+
+    /**
+     * 整体设置裁剪配置，图片与蒙版各重绘一次
+     *
+     * @param config 裁剪配置
+     */
+    public void setConfig(ClipConfig config) {
+        this.config = config;
+        clipImage.setConfig(config);
+        clipMask.setConfig(config);
+    }
+
+    /**
+     * @return 当前裁剪配置，修改时使用{@link ClipConfig#newBuilder()}
+     */
+    public ClipConfig getConfig() {
+        return config;
+    }
+
     /**
      * 设置蒙版颜色
      *
      * @param color
      */
     public void setMaskColor(int color) {
-        clipMask.setMaskColor(color);
+        setConfig(config.newBuilder().setMaskColor(color).build());
     }
 
     /**
@@ -129,8 +288,7 @@ public class ClipView extends FrameLayout {
      * @param width
      */
     public void setClipWidth(int width) {
-        clipImage.setClipWidth(width);
-        clipMask.setClipWidth(width);
+        setConfig(config.newBuilder().setClipWidth(width).build());
     }
 
     /**
@@ -139,8 +297,7 @@ public class ClipView extends FrameLayout {
      * @param height
      */
     public void setClipHeight(int height) {
-        clipImage.setClipHeight(height);
-        clipMask.setClipHeight(height);
+        setConfig(config.newBuilder().setClipHeight(height).build());
     }
 
     /**
@@ -149,8 +306,16 @@ public class ClipView extends FrameLayout {
      * @param shape
      */
     public void setClipShape(ClipShape shape) {
-        clipImage.setClipShape(shape);
-        clipMask.setClipShape(shape);
+        setConfig(config.newBuilder().setClipShape(shape).build());
+    }
+
+    /**
+     * 设置自定义图形（Path或矢量图），图形设置为{@link ClipShape#PATH}，为null时为矩形
+     *
+     * @param clipPath 自定义图形
+     */
+    public void setClipPath(ClipPath clipPath) {
+        setConfig(config.newBuilder().setClipPath(clipPath).build());
     }
 
     /**
@@ -159,26 +324,25 @@ public class ClipView extends FrameLayout {
      * @param radius 圆角大小
      */
     public void setRoundRadius(float radius) {
-        clipImage.setRoundRadius(radius);
-        clipMask.setRoundRadius(radius);
+        setConfig(config.newBuilder().setRoundRadius(radius).build());
     }
 
     /**
-     * 设置最大缩放值
+     * 设置最大缩放值，相对适配View宽度的缩放
      *
      * @param maxScale
      */
     public void setMaxScale(float maxScale) {
-        clipImage.setMaxScale(maxScale);
+        setConfig(config.newBuilder().setMaxScale(maxScale).build());
     }
 
     /**
-     * 设置最小缩放值
+     * 设置最小缩放值，相对铺满裁剪框的缩放
      *
      * @param minScale
      */
     public void setMinScale(float minScale) {
-        clipImage.setMinScale(minScale);
+        setConfig(config.newBuilder().setMinScale(minScale).build());
     }
 
     /**
@@ -208,6 +372,42 @@ public class ClipView extends FrameLayout {
         clipImage.setImagePath(path);
     }
 
+    /**
+     * 异步设置资源
+     *
+     * @param resId    资源id
+     * @param listener 加载监听
+     */
+    public void setImageResourceAsync(int resId, OnImageLoadListener listener) {
+        clipImage.setImageResourceAsync(resId, listener);
+    }
+
+    /**
+     * 异步设置资源
+     *
+     * @param path     图片路径
+     * @param listener 加载监听
+     */
+    public void setImagePathAsync(String path, OnImageLoadListener listener) {
+        clipImage.setImagePathAsync(path, listener);
+    }
+
+    /**
+     * 取消异步加载
+     */
+    public void cancelLoad() {
+        clipImage.cancelLoad();
+    }
+
+    /**
+     * 设置占位颜色，图片未加载时显示
+     *
+     * @param color 颜色
+     */
+    public void setPlaceholderColor(int color) {
+        clipImage.setPlaceholderColor(color);
+    }
+
     /**
      * @return 图片
      */
@@ -222,6 +422,97 @@ public class ClipView extends FrameLayout {
         return clipImage.getClipBitmap();
     }
 
+    /**
+     * 按输出分辨率裁剪
+     *
+     * @param width  输出宽度
+     * @param height 输出高度
+     * @return 裁剪的图片
+     */
+    public Bitmap getClipBitmap(int width, int height) {
+        return clipImage.getClipBitmap(width, height);
+    }
+
+    /**
+     * 裁剪到指定的图片，图片宽高即输出大小
+     *
+     * @param dest 可变的透明图片
+     * @return 是否裁剪成功
+     */
+    public boolean getClipBitmap(Bitmap dest) {
+        return clipImage.getClipBitmap(dest);
+    }
+
+    /**
+     * 从原图文件中解码裁剪区域
+     *
+     * @return 原图分辨率的裁剪图片
+     */
+    public Bitmap getOriginalClipBitmap() {
+        return clipImage.getOriginalClipBitmap(0, 0);
+    }
+
+    /**
+     * 从原图文件中解码裁剪区域
+     *
+     * @param reqWidth  需要宽度
+     * @param reqHeight 需要高度
+     * @return 按需要尺寸采样的裁剪图片
+     */
+    public Bitmap getOriginalClipBitmap(int reqWidth, int reqHeight) {
+        return clipImage.getOriginalClipBitmap(reqWidth, reqHeight);
+    }
+
+    /**
+     * 后台裁剪并压缩写入文件，原图分辨率，默认格式，质量90
+     *
+     * @param file     文件
+     * @param listener 导出监听
+     * @return 导出任务，可用于取消
+     */
+    public Future<?> export(File file, OnExportListener listener) {
+        return clipImage.export(file, null, 90, 0, 0, listener);
+    }
+
+    /**
+     * 后台裁剪并压缩写入文件
+     *
+     * @param file     文件
+     * @param format   压缩格式，为null时矩形使用JPEG，圆形、圆角使用保留透明度的PNG
+     * @param quality  压缩质量0-100
+     * @param width    输出宽度，小于等于0时为原图分辨率
+     * @param height   输出高度，小于等于0时为原图分辨率
+     * @param listener 导出监听
+     * @return 导出任务，可用于取消
+     */
+    public Future<?> export(File file, Bitmap.CompressFormat format, int quality, int width, int height, OnExportListener listener) {
+        return clipImage.export(file, format, quality, width, height, listener);
+    }
+
+    /**
+     * 后台裁剪并压缩写入输出流，输出流由调用方关闭
+     *
+     * @param os       输出流
+     * @param format   压缩格式，为null时矩形使用JPEG，圆形、圆角使用保留透明度的PNG
+     * @param quality  压缩质量0-100
+     * @param width    输出宽度，小于等于0时为原图分辨率
+     * @param height   输出高度，小于等于0时为原图分辨率
+     * @param listener 导出监听
+     * @return 导出任务，可用于取消
+     */
+    public Future<?> export(OutputStream os, Bitmap.CompressFormat format, int quality, int width, int height, OnExportListener listener) {
+        return clipImage.export(os, format, quality, width, height, listener);
+    }
+
+    /**
+     * 归还裁剪得到的图片到复用池，归还后不能再使用
+     *
+     * @param bitmap 裁剪图片
+     */
+    public void release(Bitmap bitmap) {
+        clipImage.release(bitmap);
+    }
+
     /**
      * @return 裁剪图片对象
      */
@@ -236,4 +527,73 @@ public class ClipView extends FrameLayout {
         return clipMask;
     }
 
+    @Override
+    protected void dispatchSaveInstanceState(SparseArray<Parcelable> container) {
+        //子View的id在多个ClipView中相同，由ClipView统一保存
+        dispatchFreezeSelfOnly(container);
+    }
+
+    @Override
+    protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
+        dispatchThawSelfOnly(container);
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.imageState = clipImage.onSaveInstanceState();
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if (savedState.imageState != null) {
+            clipImage.onRestoreInstanceState(savedState.imageState);
+        }
+    }
+
+    /**
+     * 保存的状态：图片的缩放、位移与来源
+     */
+    public static class SavedState extends BaseSavedState {
+
+        /**
+         * 图片状态
+         */
+        Parcelable imageState;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel source) {
+            super(source);
+            imageState = source.readParcelable(ClipImage.SavedState.class.getClassLoader());
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeParcelable(imageState, flags);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
 }
@@ -0,0 +1,20 @@
+package com.androidx.clip;
+
+/**
+ * 裁剪导出监听，回调在主线程
+ */
+public interface OnExportListener {
+
+    /**
+     * 导出完成
+     */
+    void onExported();
+
+    /**
+     * 导出失败
+     *
+     * @param e 异常
+     */
+    void onError(Exception e);
+
+}
@@ -0,0 +1,29 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+
+/**
+ * 图片异步加载监听，回调在主线程
+ */
+public interface OnImageLoadListener {
+
+    /**
+     * 开始加载
+     */
+    void onLoading();
+
+    /**
+     * 加载完成
+     *
+     * @param bitmap 图片
+     */
+    void onLoaded(Bitmap bitmap);
+
+    /**
+     * 加载失败
+     *
+     * @param e 异常
+     */
+    void onError(Exception e);
+
+}
@@ -0,0 +1,47 @@
+package com.androidx.clip;
+
+/**
+ * 性能数据监听，回调在产生数据的线程（解码、导出在后台线程），未设置时不统计
+ */
+public interface OnMetricsListener {
+
+    /**
+     * 图片绘制一帧
+     *
+     * @param nanos 绘制耗时（纳秒）
+     */
+    void onFrame(long nanos);
+
+    /**
+     * 图片解码完成
+     *
+     * @param sampleSize 采样率
+     * @param nanos      解码耗时（纳秒）
+     * @param bytes      新分配的图片内存（字节），复用复用池时为0
+     */
+    void onDecode(int sampleSize, long nanos, long bytes);
+
+    /**
+     * 裁剪完成
+     *
+     * @param nanos 裁剪耗时（纳秒）
+     * @param bytes 输出图片内存（字节），输出到调用方图片时为0
+     */
+    void onClip(long nanos, long bytes);
+
+    /**
+     * 导出完成，包含裁剪、压缩、写入
+     *
+     * @param nanos 导出耗时（纳秒）
+     */
+    void onExport(long nanos);
+
+    /**
+     * 手势结束（手指全部抬起）
+     *
+     * @param events 触摸事件数
+     * @param frames 手势期间的帧数
+     */
+    void onGesture(int events, int frames);
+
+}
@@ -0,0 +1,105 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 复用池内存统计、重复归还与淘汰
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class BitmapPoolTest {
+
+    private static final int SIZE = 100;
+    private static final long BYTES = SIZE * SIZE * 4;
+
+    @Test
+    public void putAndGet() {
+        BitmapPool pool = new BitmapPool(BYTES * 3);
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        pool.put(bitmap);
+        assertEquals(BYTES, pool.getSize());
+        assertSame(bitmap, pool.get(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void putTwice() {
+        BitmapPool pool = new BitmapPool(BYTES * 3);
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        pool.put(bitmap);
+        pool.put(bitmap);
+        assertFalse(bitmap.isRecycled());
+        assertEquals(BYTES, pool.getSize());
+        assertSame(bitmap, pool.get(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        Bitmap other = pool.get(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        assertNotSame(bitmap, other);
+        assertFalse(bitmap.isRecycled());
+    }
+
+    @Test
+    public void putImmutable() {
+        BitmapPool pool = new BitmapPool(BYTES * 3);
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888).copy(Bitmap.Config.ARGB_8888, false);
+        pool.put(bitmap);
+        assertTrue(bitmap.isRecycled());
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void putOverMaxSize() {
+        BitmapPool pool = new BitmapPool(BYTES - 1);
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        pool.put(bitmap);
+        assertTrue(bitmap.isRecycled());
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        BitmapPool pool = new BitmapPool(BYTES * 3);
+        Bitmap[] bitmaps = new Bitmap[4];
+        for (int i = 0; i < bitmaps.length; i++) {
+            bitmaps[i] = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+            pool.put(bitmaps[i]);
+        }
+        assertEquals(BYTES * 3, pool.getSize());
+        assertTrue(bitmaps[0].isRecycled());
+        assertFalse(bitmaps[3].isRecycled());
+        pool.setMaxSize(BYTES);
+        assertEquals(BYTES, pool.getSize());
+        assertTrue(bitmaps[1].isRecycled());
+        assertTrue(bitmaps[2].isRecycled());
+        assertFalse(bitmaps[3].isRecycled());
+    }
+
+    @Test
+    public void clear() {
+        BitmapPool pool = new BitmapPool(BYTES * 3);
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        pool.put(bitmap);
+        pool.clear();
+        assertTrue(bitmap.isRecycled());
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void getBytesPerPixel() {
+        assertEquals(1, BitmapPool.getBytesPerPixel(Bitmap.Config.ALPHA_8));
+        assertEquals(2, BitmapPool.getBytesPerPixel(Bitmap.Config.RGB_565));
+        assertEquals(4, BitmapPool.getBytesPerPixel(Bitmap.Config.ARGB_8888));
+    }
+
+}
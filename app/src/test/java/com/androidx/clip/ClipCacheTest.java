@@ -0,0 +1,46 @@
+package com.androidx.clip;
+
+import android.content.res.Resources;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 共享缓存的key
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class ClipCacheTest {
+
+    private static final int RES_ID = 0x7f010001;
+
+    @Test
+    public void getKey_resourceFollowsConfiguration() {
+        String key = ClipCache.getKey(getResources(), null, RES_ID);
+        assertEquals(key, ClipCache.getKey(getResources(), null, RES_ID));
+        //深色模式
+        RuntimeEnvironment.setQualifiers("+night");
+        String night = ClipCache.getKey(getResources(), null, RES_ID);
+        assertNotEquals(key, night);
+        //屏幕密度
+        RuntimeEnvironment.setQualifiers("+xxhdpi");
+        assertNotEquals(night, ClipCache.getKey(getResources(), null, RES_ID));
+    }
+
+    @Test
+    public void getKey_noSource() {
+        assertNull(ClipCache.getKey(getResources(), null, 0));
+    }
+
+    private static Resources getResources() {
+        return RuntimeEnvironment.getApplication().getResources();
+    }
+
+}
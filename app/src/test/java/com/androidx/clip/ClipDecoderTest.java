@@ -0,0 +1,150 @@
+package com.androidx.clip;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.RectF;
+import android.media.ExifInterface;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 采样率、解码尺寸与EXIF方向
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ClipDecoderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void calculateInSampleSize_keepsRequestedSize() {
+        assertEquals(2, ClipDecoder.calculateInSampleSize(4000, 3000, 1080, 1080));
+        assertEquals(4, ClipDecoder.calculateInSampleSize(8000, 6000, 1000, 1000));
+        assertEquals(8, ClipDecoder.calculateInSampleSize(8000, 8000, 1000, 1000));
+    }
+
+    @Test
+    public void calculateInSampleSize_smallImage() {
+        assertEquals(1, ClipDecoder.calculateInSampleSize(1000, 1000, 1080, 1080));
+        assertEquals(1, ClipDecoder.calculateInSampleSize(2000, 1000, 1080, 1080));
+    }
+
+    @Test
+    public void calculateInSampleSize_noRequest() {
+        assertEquals(1, ClipDecoder.calculateInSampleSize(4000, 3000, 0, 0));
+        assertEquals(1, ClipDecoder.calculateInSampleSize(4000, 3000, -1, -1));
+    }
+
+    @Test
+    public void calculateInSampleSize_singleDimension() {
+        //4800万像素横图，1080宽的View最大放大3倍
+        assertEquals(2, ClipDecoder.calculateInSampleSize(8000, 6000, 3240, 0));
+        //旋转90度后显示宽度对应原图高度
+        assertEquals(2, ClipDecoder.calculateInSampleSize(6000, 8000, 0, 3240));
+        assertEquals(2, ClipDecoder.calculateInSampleSize(4000, 3000, 1080, -1));
+        assertEquals(1, ClipDecoder.calculateInSampleSize(2000, 1000, 1080, 0));
+    }
+
+    @Test
+    public void decodeFile_scalesToWidth() throws IOException {
+        String path = createImage(1600, 1200);
+        //采样到800x600，再按宽度缩放到500
+        Bitmap bitmap = ClipDecoder.decodeFile(path, 500, 0, Bitmap.Config.ARGB_8888, null);
+        assertEquals(500, bitmap.getWidth());
+        assertEquals(375, bitmap.getHeight());
+        assertEquals(Resources.getSystem().getDisplayMetrics().densityDpi, bitmap.getDensity());
+    }
+
+    @Test
+    public void decodeFile_scalesToHeight() throws IOException {
+        String path = createImage(1600, 1200);
+        Bitmap bitmap = ClipDecoder.decodeFile(path, 0, 500, Bitmap.Config.ARGB_8888, null);
+        assertEquals(667, bitmap.getWidth());
+        assertEquals(500, bitmap.getHeight());
+        assertEquals(Resources.getSystem().getDisplayMetrics().densityDpi, bitmap.getDensity());
+    }
+
+    @Test
+    public void decodeFile_keepsSmallImage() throws IOException {
+        String path = createImage(400, 300);
+        Bitmap bitmap = ClipDecoder.decodeFile(path, 1080, 0, Bitmap.Config.ARGB_8888, null);
+        assertEquals(400, bitmap.getWidth());
+        assertEquals(300, bitmap.getHeight());
+    }
+
+    @Test
+    public void decodeRegion_mapsRectIntoRegion() throws IOException {
+        BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(createImage(200, 100), false);
+        RectF relative = new RectF();
+        //按外接整数区域解码，超出图片的部分不解码
+        Bitmap bitmap = ClipDecoder.decodeRegion(decoder, new RectF(-50.5F, 10.25F, 150.5F, 90.75F), 0, 0, Bitmap.Config.ARGB_8888, relative);
+        assertEquals(151, bitmap.getWidth());
+        assertEquals(81, bitmap.getHeight());
+        assertEquals(-50.5F, relative.left, 0.001F);
+        assertEquals(0.25F, relative.top, 0.001F);
+        assertEquals(150.5F, relative.right, 0.001F);
+        assertEquals(80.75F, relative.bottom, 0.001F);
+    }
+
+    @Test
+    public void getRotation() {
+        assertEquals(0, ClipDecoder.getRotation(ExifInterface.ORIENTATION_UNDEFINED));
+        assertEquals(0, ClipDecoder.getRotation(ExifInterface.ORIENTATION_NORMAL));
+        assertEquals(0, ClipDecoder.getRotation(ExifInterface.ORIENTATION_FLIP_HORIZONTAL));
+        assertEquals(90, ClipDecoder.getRotation(ExifInterface.ORIENTATION_ROTATE_90));
+        assertEquals(90, ClipDecoder.getRotation(ExifInterface.ORIENTATION_TRANSVERSE));
+        assertEquals(180, ClipDecoder.getRotation(ExifInterface.ORIENTATION_ROTATE_180));
+        assertEquals(180, ClipDecoder.getRotation(ExifInterface.ORIENTATION_FLIP_VERTICAL));
+        assertEquals(270, ClipDecoder.getRotation(ExifInterface.ORIENTATION_ROTATE_270));
+        assertEquals(270, ClipDecoder.getRotation(ExifInterface.ORIENTATION_TRANSPOSE));
+    }
+
+    @Test
+    public void isFlipped() {
+        assertFalse(ClipDecoder.isFlipped(ExifInterface.ORIENTATION_NORMAL));
+        assertFalse(ClipDecoder.isFlipped(ExifInterface.ORIENTATION_ROTATE_90));
+        assertFalse(ClipDecoder.isFlipped(ExifInterface.ORIENTATION_ROTATE_180));
+        assertFalse(ClipDecoder.isFlipped(ExifInterface.ORIENTATION_ROTATE_270));
+        assertTrue(ClipDecoder.isFlipped(ExifInterface.ORIENTATION_FLIP_HORIZONTAL));
+        assertTrue(ClipDecoder.isFlipped(ExifInterface.ORIENTATION_FLIP_VERTICAL));
+        assertTrue(ClipDecoder.isFlipped(ExifInterface.ORIENTATION_TRANSPOSE));
+        assertTrue(ClipDecoder.isFlipped(ExifInterface.ORIENTATION_TRANSVERSE));
+    }
+
+    /**
+     * @param width  宽度
+     * @param height 高度
+     * @return 临时PNG图片路径
+     */
+    private String createImage(int width, int height) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(0xFF3366CC);
+        File file = folder.newFile();
+        OutputStream os = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, os);
+        } finally {
+            os.close();
+        }
+        return file.getAbsolutePath();
+    }
+
+}
@@ -0,0 +1,417 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.RectF;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.androidx.clip.TestImages.assertPixel;
+import static com.androidx.clip.TestImages.assertTransparent;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 裁剪区域、裁剪矩阵、图形输出与批量提交
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ClipEngineTest {
+
+    private static final float DELTA = 0.01F;
+
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 300;
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 1920;
+    private static final int CLIP_WIDTH = 100;
+    private static final int CLIP_HEIGHT = 50;
+    private static final float SCALE = 0.5F;
+    private static final float MOVE_X = 20;
+    private static final float MOVE_Y = -10;
+
+    @Test
+    public void calculateClipRect_rotation0() {
+        assertRect(60, 120, 260, 220, calculateClipRect(0, false));
+    }
+
+    @Test
+    public void calculateClipRect_rotation90() {
+        assertRect(170, 90, 270, 290, calculateClipRect(90, false));
+    }
+
+    @Test
+    public void calculateClipRect_rotation180() {
+        assertRect(140, 80, 340, 180, calculateClipRect(180, false));
+    }
+
+    @Test
+    public void calculateClipRect_rotation270() {
+        assertRect(130, 10, 230, 210, calculateClipRect(270, false));
+    }
+
+    @Test
+    public void calculateClipRect_flip() {
+        assertRect(140, 120, 340, 220, calculateClipRect(0, true));
+        assertRect(130, 90, 230, 290, calculateClipRect(90, true));
+        assertRect(60, 80, 260, 180, calculateClipRect(180, true));
+        assertRect(170, 10, 270, 210, calculateClipRect(270, true));
+    }
+
+    @Test
+    public void calculateClipRect_clampsMove() {
+        RectF rect = new RectF();
+        ClipEngine.calculateClipRect(WIDTH, HEIGHT, SCALE, 0, false, 1000, 1000, CLIP_WIDTH, CLIP_HEIGHT, rect);
+        assertRect(0, 0, 200, 100, rect);
+    }
+
+    @Test
+    public void calculateClipRect_matchesDisplay() {
+        //裁剪区域按显示矩阵映射后应为View中的裁剪框
+        RectF frame = getClipFrame();
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            for (boolean flip : new boolean[]{false, true}) {
+                RectF rect = calculateClipRect(rotation, flip);
+                getDisplayMatrix(rotation, flip).mapRect(rect);
+                assertRect(frame.left, frame.top, frame.right, frame.bottom, rect);
+            }
+        }
+    }
+
+    @Test
+    public void getClipMatrix_mapsRectToOutput() {
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            for (boolean flip : new boolean[]{false, true}) {
+                RectF rect = calculateClipRect(rotation, flip);
+                Matrix matrix = new Matrix();
+                ClipEngine.getClipMatrix(rect, rotation, flip, CLIP_WIDTH * 2, CLIP_HEIGHT * 2, matrix);
+                RectF out = new RectF(rect);
+                matrix.mapRect(out);
+                assertRect(0, 0, CLIP_WIDTH * 2, CLIP_HEIGHT * 2, out);
+            }
+        }
+    }
+
+    @Test
+    public void getClipMatrix_keepsDisplayOrientation() {
+        //原图中的每个角在输出中的位置与在裁剪框中显示的位置相同
+        RectF frame = getClipFrame();
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            for (boolean flip : new boolean[]{false, true}) {
+                RectF rect = calculateClipRect(rotation, flip);
+                Matrix clip = new Matrix();
+                ClipEngine.getClipMatrix(rect, rotation, flip, CLIP_WIDTH, CLIP_HEIGHT, clip);
+                Matrix display = getDisplayMatrix(rotation, flip);
+                float[] points = {rect.left, rect.top, rect.right, rect.top, rect.right, rect.bottom, rect.left, rect.bottom};
+                float[] clipped = new float[points.length];
+                float[] displayed = new float[points.length];
+                clip.mapPoints(clipped, points);
+                display.mapPoints(displayed, points);
+                for (int i = 0; i < points.length; i += 2) {
+                    assertEquals(displayed[i] - frame.left, clipped[i], DELTA);
+                    assertEquals(displayed[i + 1] - frame.top, clipped[i + 1], DELTA);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void clip_outsideImageIsTransparent() {
+        Bitmap source = TestImages.createBitmap(200, 100);
+        //裁剪区域左边超出图片50，超出部分透明，其余与原图对应
+        RectF rect = new RectF(-50, 0, 150, 100);
+        for (ClipShape shape : new ClipShape[]{ClipShape.RECT, ClipShape.ROUND}) {
+            Bitmap bitmap = ClipEngine.clip(source, rect, 0, false, shape, 10, null, 200, 100, Bitmap.Config.ARGB_8888);
+            assertTransparent(bitmap.getPixel(25, 50));
+            assertPixel(200, 100, 0, 50, bitmap.getPixel(51, 50));
+            assertPixel(200, 100, 100, 50, bitmap.getPixel(150, 50));
+        }
+    }
+
+    @Test
+    public void clip_rect() {
+        Bitmap source = TestImages.createBitmap(200, 200);
+        //缩小一半，输出像素中心对应原图两像素之间
+        Bitmap bitmap = ClipEngine.clip(source, new RectF(0, 0, 200, 200), 0, false, ClipShape.RECT, 0, null, 100, 100, Bitmap.Config.ARGB_8888);
+        assertPixel(200, 200, 1, 1, bitmap.getPixel(0, 0));
+        assertPixel(200, 200, 101, 101, bitmap.getPixel(50, 50));
+        assertPixel(200, 200, 199, 199, bitmap.getPixel(99, 99));
+    }
+
+    @Test
+    public void clip_circle() {
+        Bitmap bitmap = clipShape(ClipShape.CIRCLE, 0, null);
+        assertTransparent(bitmap.getPixel(0, 0));
+        assertTransparent(bitmap.getPixel(99, 0));
+        assertTransparent(bitmap.getPixel(0, 99));
+        assertTransparent(bitmap.getPixel(99, 99));
+        assertPixel(100, 100, 50, 50, bitmap.getPixel(50, 50));
+        assertPixel(100, 100, 50, 2, bitmap.getPixel(50, 2));
+        assertPixel(100, 100, 2, 50, bitmap.getPixel(2, 50));
+    }
+
+    @Test
+    public void clip_round() {
+        Bitmap bitmap = clipShape(ClipShape.ROUND, 20, null);
+        //圆角以外透明，圆角以内与原图对应
+        assertTransparent(bitmap.getPixel(1, 1));
+        assertTransparent(bitmap.getPixel(98, 98));
+        assertPixel(100, 100, 10, 10, bitmap.getPixel(10, 10));
+        assertPixel(100, 100, 50, 0, bitmap.getPixel(50, 0));
+        assertPixel(100, 100, 0, 50, bitmap.getPixel(0, 50));
+        assertPixel(100, 100, 99, 99, clipShape(ClipShape.ROUND, 0, null).getPixel(99, 99));
+    }
+
+    @Test
+    public void clip_path() {
+        //左上半三角形
+        ClipPath clipPath = ClipPath.fromPathData("M0,0 L10,0 L0,10 Z");
+        Bitmap bitmap = clipShape(ClipShape.PATH, 0, clipPath);
+        assertPixel(100, 100, 10, 10, bitmap.getPixel(10, 10));
+        assertPixel(100, 100, 80, 10, bitmap.getPixel(80, 10));
+        assertPixel(100, 100, 10, 80, bitmap.getPixel(10, 80));
+        assertTransparent(bitmap.getPixel(60, 60));
+        assertTransparent(bitmap.getPixel(90, 90));
+        //未设置自定义图形时按矩形裁剪
+        assertPixel(100, 100, 90, 90, clipShape(ClipShape.PATH, 0, null).getPixel(90, 90));
+    }
+
+    @Test
+    public void clip_rotationAndFlip() {
+        int width = 200;
+        int height = 100;
+        Bitmap source = TestImages.createBitmap(width, height);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            for (boolean flip : new boolean[]{false, true}) {
+                boolean swap = rotation % 180 != 0;
+                int outWidth = swap ? height : width;
+                int outHeight = swap ? width : height;
+                Bitmap bitmap = ClipEngine.clip(source, new RectF(0, 0, width, height), rotation, flip, ClipShape.RECT, 0, null, outWidth, outHeight, Bitmap.Config.ARGB_8888);
+                assertEquals(outWidth, bitmap.getWidth());
+                assertEquals(outHeight, bitmap.getHeight());
+                int[][] points = {{0, 0}, {outWidth - 1, 0}, {0, outHeight - 1}, {outWidth - 1, outHeight - 1}, {10, 30}};
+                for (int[] point : points) {
+                    int[] expected = getSourcePoint(point[0], point[1], rotation, flip, width, height);
+                    assertPixel(width, height, expected[0], expected[1], bitmap.getPixel(point[0], point[1]));
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void submit_cancelQueuedReleasesPermit() throws InterruptedException {
+        ClipEngine engine = new ClipEngine(1, 1);
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicInteger clipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ClipEngine.Callback callback = newCallback(gate, clipped, failed);
+        engine.submit(newJob(), callback);
+        //工作线程被第一个任务占用，之后的任务都在排队，取消后归还许可，否则第二次提交阻塞
+        for (int i = 0; i < 5; i++) {
+            Future<?> future = engine.submit(newJob(), callback);
+            assertTrue(future.cancel(false));
+        }
+        gate.countDown();
+        engine.submit(newJob(), callback);
+        engine.shutdown();
+        assertTrue(engine.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, clipped.get());
+        assertEquals(0, failed.get());
+    }
+
+    @Test(timeout = 10000)
+    public void submitAll_blocksWhenQueueFull() throws InterruptedException {
+        final ClipEngine engine = new ClipEngine(1, 1);
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicInteger clipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        final ClipEngine.Callback callback = newCallback(gate, clipped, failed);
+        final List<ClipEngine.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(newJob());
+        }
+        Thread submitter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    engine.submitAll(jobs, callback);
+                } catch (InterruptedException e) {
+                    //测试结束
+                }
+            }
+        });
+        submitter.start();
+        //一个执行中、一个排队，其余提交阻塞
+        submitter.join(500);
+        assertTrue(submitter.isAlive());
+        assertEquals(0, clipped.get());
+        gate.countDown();
+        submitter.join(5000);
+        assertFalse(submitter.isAlive());
+        engine.shutdown();
+        assertTrue(engine.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(6, clipped.get());
+        assertEquals(0, failed.get());
+    }
+
+    @Test
+    public void normalizeRotation() {
+        assertEquals(0, ClipEngine.normalizeRotation(0));
+        assertEquals(0, ClipEngine.normalizeRotation(44));
+        assertEquals(90, ClipEngine.normalizeRotation(46));
+        assertEquals(270, ClipEngine.normalizeRotation(-90));
+        assertEquals(0, ClipEngine.normalizeRotation(360));
+        assertEquals(90, ClipEngine.normalizeRotation(450));
+        assertEquals(270, ClipEngine.normalizeRotation(-450));
+    }
+
+    /**
+     * 100x100渐变图片按原大小裁剪为图形
+     *
+     * @param shape    图形
+     * @param radius   圆角大小
+     * @param clipPath 自定义图形
+     * @return 裁剪图片
+     */
+    private static Bitmap clipShape(ClipShape shape, float radius, ClipPath clipPath) {
+        Bitmap source = TestImages.createBitmap(100, 100);
+        return ClipEngine.clip(source, new RectF(0, 0, 100, 100), 0, false, shape, radius, clipPath, 100, 100, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * 输出像素对应的原图像素：先水平镜像，再顺时针旋转
+     *
+     * @param x        输出x
+     * @param y        输出y
+     * @param rotation 顺时针旋转角度
+     * @param flip     是否水平镜像
+     * @param width    原图宽度
+     * @param height   原图高度
+     * @return 原图坐标
+     */
+    private static int[] getSourcePoint(int x, int y, int rotation, boolean flip, int width, int height) {
+        int sourceX;
+        int sourceY;
+        switch (rotation) {
+            case 90:
+                sourceX = y;
+                sourceY = height - 1 - x;
+                break;
+            case 180:
+                sourceX = width - 1 - x;
+                sourceY = height - 1 - y;
+                break;
+            case 270:
+                sourceX = width - 1 - y;
+                sourceY = x;
+                break;
+            default:
+                sourceX = x;
+                sourceY = y;
+                break;
+        }
+        if (flip) {
+            sourceX = width - 1 - sourceX;
+        }
+        return new int[]{sourceX, sourceY};
+    }
+
+    /**
+     * @return 20x20纯色图片的整图裁剪任务
+     */
+    private static ClipEngine.Job newJob() {
+        Bitmap source = Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888);
+        source.eraseColor(Color.RED);
+        return new ClipEngine.Job(source, new RectF(0, 0, 20, 20), ClipShape.RECT, 0, 10, 10);
+    }
+
+    /**
+     * @param gate    回调等待放行，模拟耗时任务占用工作线程
+     * @param clipped 完成数
+     * @param failed  失败数
+     * @return 计数回调
+     */
+    private static ClipEngine.Callback newCallback(final CountDownLatch gate, final AtomicInteger clipped, final AtomicInteger failed) {
+        return new ClipEngine.Callback() {
+            @Override
+            public void onClip(ClipEngine.Job job, Bitmap bitmap) {
+                await(gate);
+                clipped.incrementAndGet();
+            }
+
+            @Override
+            public void onError(ClipEngine.Job job, Exception e) {
+                await(gate);
+                failed.incrementAndGet();
+            }
+        };
+    }
+
+    private static void await(CountDownLatch gate) {
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param rotation 顺时针旋转角度
+     * @param flip     是否水平镜像
+     * @return 原图坐标中的裁剪区域
+     */
+    private static RectF calculateClipRect(int rotation, boolean flip) {
+        RectF rect = new RectF();
+        ClipEngine.calculateClipRect(WIDTH, HEIGHT, SCALE, rotation, flip, MOVE_X, MOVE_Y, CLIP_WIDTH, CLIP_HEIGHT, rect);
+        return rect;
+    }
+
+    /**
+     * 与ClipImage相同的显示矩阵
+     *
+     * @param rotation 顺时针旋转角度
+     * @param flip     是否水平镜像
+     * @return 原图坐标到View坐标的矩阵
+     */
+    private static Matrix getDisplayMatrix(int rotation, boolean flip) {
+        Matrix matrix = new Matrix();
+        matrix.setTranslate(-WIDTH / 2.0F, -HEIGHT / 2.0F);
+        if (flip) {
+            matrix.postScale(-1, 1);
+        }
+        matrix.postRotate(rotation);
+        matrix.postScale(SCALE, SCALE);
+        matrix.postTranslate(VIEW_WIDTH / 2.0F + MOVE_X, VIEW_HEIGHT / 2.0F + MOVE_Y);
+        return matrix;
+    }
+
+    /**
+     * @return View中居中的裁剪框
+     */
+    private static RectF getClipFrame() {
+        return new RectF((VIEW_WIDTH - CLIP_WIDTH) / 2.0F, (VIEW_HEIGHT - CLIP_HEIGHT) / 2.0F,
+                (VIEW_WIDTH + CLIP_WIDTH) / 2.0F, (VIEW_HEIGHT + CLIP_HEIGHT) / 2.0F);
+    }
+
+    private static void assertRect(float left, float top, float right, float bottom, RectF actual) {
+        assertEquals(left, actual.left, DELTA);
+        assertEquals(top, actual.top, DELTA);
+        assertEquals(right, actual.right, DELTA);
+        assertEquals(bottom, actual.bottom, DELTA);
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.IOException;
+
+import static com.androidx.clip.TestImages.assertPixel;
+import static com.androidx.clip.TestImages.createBitmap;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 缩放范围与裁剪输出
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ClipImageTest {
+
+    private static final int VIEW_WIDTH = 400;
+    private static final int VIEW_HEIGHT = 800;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ClipImage image;
+
+    @Before
+    public void setUp() {
+        image = new ClipImage(RuntimeEnvironment.getApplication());
+    }
+
+    @Test
+    public void wideImage_coversClipFrame() {
+        image.setConfig(new ClipConfig.Builder().setClipWidth(300).setClipHeight(300).build());
+        image.setImageBitmap(createBitmap(600, 100));
+        layout();
+        //高度铺满裁剪框：缩放3倍，裁剪原图中间100x100
+        Bitmap clip = image.getClipBitmap();
+        assertPixel(600, 100, 250, 0, clip.getPixel(0, 0));
+        assertPixel(600, 100, 300, 50, clip.getPixel(150, 150));
+        assertPixel(600, 100, 349, 99, clip.getPixel(299, 299));
+    }
+
+    @Test
+    public void setMinScale_keepsAfterLoad() {
+        image.setConfig(new ClipConfig.Builder().setClipWidth(200).setClipHeight(200).build());
+        image.setImageBitmap(createBitmap(400, 400));
+        layout();
+        //铺满裁剪框为0.5倍，最小缩放4倍即2倍，裁剪原图中间100x100
+        image.setMinScale(4);
+        Bitmap clip = image.getClipBitmap();
+        assertPixel(400, 400, 150, 150, clip.getPixel(0, 0));
+        assertPixel(400, 400, 249, 249, clip.getPixel(199, 199));
+        //重新加载图片后仍然有效
+        image.setImageBitmap(createBitmap(400, 400));
+        clip = image.getClipBitmap();
+        assertPixel(400, 400, 150, 150, clip.getPixel(0, 0));
+    }
+
+    @Test
+    public void getOriginalClipBitmap_mapsToOriginal() throws IOException {
+        image.setConfig(new ClipConfig.Builder().setClipWidth(300).setClipHeight(300).build());
+        image.setImagePath(TestImages.createFile(folder.getRoot(), 1600, 1200));
+        layout();
+        //高度铺满裁剪框，裁剪原图中间1200x1200（Robolectric的区域解码不输出像素，只验证大小）
+        Bitmap clip = image.getOriginalClipBitmap(0, 0);
+        assertEquals(1200, clip.getWidth());
+        assertEquals(1200, clip.getHeight());
+    }
+
+    private void layout() {
+        image.measure(View.MeasureSpec.makeMeasureSpec(VIEW_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(VIEW_HEIGHT, View.MeasureSpec.EXACTLY));
+        image.layout(0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+    }
+
+}
@@ -0,0 +1,200 @@
+package com.androidx.clip;
+
+import android.graphics.Path;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * SVG路径数据解析：解析结果与直接调用Path的结果逐点比较
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ClipPathParserTest {
+
+    private static final float DELTA = 0.001F;
+    /**
+     * 曲线近似误差
+     */
+    private static final float TOLERANCE = 0.01F;
+
+    @Test
+    public void absoluteCommands() {
+        Path expected = new Path();
+        expected.moveTo(10, 20);
+        expected.lineTo(30, 20);
+        expected.lineTo(40, 20);
+        expected.lineTo(40, 50);
+        expected.cubicTo(40, 60, 50, 70, 60, 70);
+        expected.quadTo(70, 70, 70, 80);
+        expected.close();
+        assertPath(expected, "M10,20 L30,20 H40 V50 C40,60 50,70 60,70 Q70,70 70,80 Z");
+    }
+
+    @Test
+    public void relativeCommands() {
+        Path expected = new Path();
+        expected.moveTo(10, 20);
+        expected.lineTo(30, 20);
+        expected.lineTo(40, 20);
+        expected.lineTo(40, 50);
+        expected.cubicTo(40, 60, 50, 70, 60, 70);
+        expected.quadTo(70, 70, 70, 80);
+        expected.close();
+        assertPath(expected, "m10,20 l20,0 h10 v30 c0,10 10,20 20,20 q10,0 10,10 z");
+    }
+
+    @Test
+    public void implicitRepeat() {
+        //移动后的坐标对为直线
+        Path expected = new Path();
+        expected.moveTo(0, 0);
+        expected.lineTo(10, 0);
+        expected.lineTo(10, 10);
+        assertPath(expected, "M0,0 10,0 10,10");
+        expected = new Path();
+        expected.moveTo(1, 1);
+        expected.lineTo(3, 1);
+        expected.lineTo(3, 3);
+        assertPath(expected, "m1,1 2,0 0,2");
+        //其他命令重复自身
+        expected = new Path();
+        expected.moveTo(0, 0);
+        expected.lineTo(5, 0);
+        expected.lineTo(5, 5);
+        expected.lineTo(10, 5);
+        assertPath(expected, "M0,0 h5 v5 h5");
+        expected = new Path();
+        expected.moveTo(0, 0);
+        expected.quadTo(5, 10, 10, 0);
+        expected.quadTo(15, 10, 20, 0);
+        assertPath(expected, "M0 0 q5 10 10 0 5 10 10 0");
+    }
+
+    @Test
+    public void compactNumbers() {
+        Path expected = new Path();
+        expected.moveTo(1.5F, 0.5F);
+        expected.lineTo(-1, -2);
+        expected.lineTo(-0.5F, 0.25F);
+        assertPath(expected, "M1.5.5L-1-2-.5.25");
+        //指数
+        expected = new Path();
+        expected.moveTo(10, -0.2F);
+        expected.lineTo(5, 0.01F);
+        assertPath(expected, "M1e1-2E-1L.5e+1,1e-2");
+    }
+
+    @Test
+    public void arcFlagsWithoutSeparators() {
+        Path path = ClipPathParser.createPath("M0,0 a1 1 0 011 1");
+        assertArrayEquals(approximate(ClipPathParser.createPath("M0,0 a1,1 0 0,1 1,1")), approximate(path), DELTA);
+        float[] points = approximate(path);
+        assertEquals(1, points[points.length - 2], DELTA);
+        assertEquals(1, points[points.length - 1], DELTA);
+        //顺时针与逆时针为不同的弧
+        assertFalse(equals(approximate(path), approximate(ClipPathParser.createPath("M0,0 a1 1 0 001 1"))));
+        assertArrayEquals(approximate(ClipPathParser.createPath("M0,0 A2,2 0 1,0 2,0")),
+                approximate(ClipPathParser.createPath("M0 0A2 2 0 102 0")), DELTA);
+    }
+
+    @Test
+    public void smoothAfterOtherCommand() {
+        //前一段不是曲线时，控制点为当前点
+        Path expected = new Path();
+        expected.moveTo(0, 0);
+        expected.lineTo(10, 0);
+        expected.cubicTo(10, 0, 20, 10, 30, 0);
+        assertPath(expected, "M0,0 L10,0 S20,10 30,0");
+        expected = new Path();
+        expected.moveTo(0, 0);
+        expected.lineTo(10, 0);
+        expected.quadTo(10, 0, 30, 0);
+        assertPath(expected, "M0,0 L10,0 T30,0");
+        //三次曲线后的二次平滑曲线不反射
+        expected = new Path();
+        expected.moveTo(0, 0);
+        expected.cubicTo(0, 10, 10, 10, 10, 0);
+        expected.quadTo(10, 0, 20, 0);
+        assertPath(expected, "M0,0 C0,10 10,10 10,0 T20,0");
+    }
+
+    @Test
+    public void smoothAfterCurve() {
+        Path expected = new Path();
+        expected.moveTo(0, 0);
+        expected.cubicTo(0, 10, 10, 10, 10, 0);
+        expected.cubicTo(10, -10, 20, -10, 20, 0);
+        assertPath(expected, "M0,0 C0,10 10,10 10,0 s10,-10 10,0");
+        expected = new Path();
+        expected.moveTo(0, 0);
+        expected.quadTo(5, 10, 10, 0);
+        expected.quadTo(15, -10, 20, 0);
+        expected.quadTo(25, 10, 30, 0);
+        assertPath(expected, "M0,0 Q5,10 10,0 T20,0 t10,0");
+    }
+
+    @Test
+    public void relativeMoveAfterClose() {
+        //闭合后当前点回到子路径起点
+        Path expected = new Path();
+        expected.moveTo(10, 10);
+        expected.lineTo(20, 10);
+        expected.lineTo(20, 20);
+        expected.close();
+        expected.moveTo(15, 15);
+        expected.lineTo(16, 15);
+        assertPath(expected, "M10,10 l10,0 l0,10 z m5,5 l1,0");
+    }
+
+    @Test
+    public void malformed() {
+        String[] invalid = {"10,10", "X10,10", "M10", "M10,x", "M.", "M-", "M1,1 L", "M1,1 Z 2,2", "M1e", "M0,0 a1 1 0 2 1 1 1", "M0,0 a1 1 0 0"};
+        for (String data : invalid) {
+            try {
+                ClipPathParser.createPath(data);
+                fail("expected IllegalArgumentException: " + data);
+            } catch (IllegalArgumentException e) {
+                //格式错误
+            }
+        }
+    }
+
+    /**
+     * @param expected 期望路径
+     * @param data     路径数据
+     */
+    private static void assertPath(Path expected, String data) {
+        assertArrayEquals(data, approximate(expected), approximate(ClipPathParser.createPath(data)), DELTA);
+    }
+
+    /**
+     * @param path 路径
+     * @return 折线近似的点（比例、x、y）
+     */
+    private static float[] approximate(Path path) {
+        return path.approximate(TOLERANCE);
+    }
+
+    private static boolean equals(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (Math.abs(a[i] - b[i]) > DELTA) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 层级选择与释放
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ClipPyramidTest {
+
+    @Test
+    public void release_keepsDrawnLevels() throws InterruptedException {
+        Bitmap source = Bitmap.createBitmap(512, 512, Bitmap.Config.ARGB_8888);
+        ClipPyramid pyramid = new ClipPyramid(source, Long.MAX_VALUE, new ClipPyramid.Callback() {
+            @Override
+            public void onLevelBuilt() {
+            }
+        });
+        Bitmap level = awaitLevel(pyramid, 0.25F);
+        assertEquals(128, level.getWidth());
+        //上一帧的显示列表可能仍引用层级，释放后不能回收
+        pyramid.release();
+        assertFalse(level.isRecycled());
+        assertSame(source, pyramid.getLevel(0.25F));
+    }
+
+    /**
+     * @param pyramid 图片金字塔
+     * @param scale   显示缩放
+     * @return 生成完成后的层级
+     */
+    private static Bitmap awaitLevel(ClipPyramid pyramid, float scale) throws InterruptedException {
+        Bitmap source = pyramid.getLevel(1);
+        for (int i = 0; i < 100 && pyramid.getLevel(scale) == source; i++) {
+            Thread.sleep(50);
+        }
+        Bitmap level = pyramid.getLevel(scale);
+        assertNotSame(source, level);
+        return level;
+    }
+
+}
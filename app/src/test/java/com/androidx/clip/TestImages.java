@@ -0,0 +1,81 @@
+package com.androidx.clip;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 测试图片：红色随x、绿色随y渐变，由像素颜色可以反推原图坐标
+ */
+public class TestImages {
+
+    /**
+     * 颜色允许误差（滤波缩放）
+     */
+    private static final int TOLERANCE = 4;
+
+    /**
+     * @param width  宽度
+     * @param height 高度
+     * @return 渐变图片
+     */
+    public static Bitmap createBitmap(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                bitmap.setPixel(x, y, Color.rgb(x * 255 / (width - 1), y * 255 / (height - 1), 0));
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * 创建无损的PNG图片文件
+     *
+     * @param dir    目录
+     * @param width  宽度
+     * @param height 高度
+     * @return 文件路径
+     * @throws IOException 写入失败
+     */
+    public static String createFile(File dir, int width, int height) throws IOException {
+        File file = new File(dir, width + "x" + height + ".png");
+        Bitmap bitmap = createBitmap(width, height);
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, os);
+        } finally {
+            os.close();
+            bitmap.recycle();
+        }
+        return file.getAbsolutePath();
+    }
+
+    /**
+     * 输出像素应为渐变图片中的坐标
+     *
+     * @param width  渐变图片宽度
+     * @param height 渐变图片高度
+     * @param x      原图x
+     * @param y      原图y
+     * @param actual 输出像素
+     */
+    public static void assertPixel(int width, int height, int x, int y, int actual) {
+        assertEquals(255, Color.alpha(actual));
+        assertEquals(x * 255 / (width - 1), Color.red(actual), TOLERANCE);
+        assertEquals(y * 255 / (height - 1), Color.green(actual), TOLERANCE);
+    }
+
+    /**
+     * @param actual 输出像素
+     */
+    public static void assertTransparent(int actual) {
+        assertEquals(0, Color.alpha(actual));
+    }
+
+}
@@ -0,0 +1,270 @@
+package com.androidx.clip.benchmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static org.junit.Assert.fail;
+
+/**
+ * 基准测试，统计单次操作的中位耗时与Java堆分配，并与基准文件对比
+ */
+public class Benchmark {
+
+    /**
+     * 最少预热次数
+     */
+    public static final int WARMUP_COUNT = 20;
+    /**
+     * 最少预热时间（纳秒），等待JIT编译完成，编译线程与采样争用CPU时中位耗时不稳定
+     */
+    private static final long WARMUP_NANOS = 2000000000L;
+    /**
+     * 采样次数
+     */
+    public static final int SAMPLE_COUNT = 50;
+    /**
+     * 超出基准时最多采样的轮数
+     */
+    private static final int MAX_ROUNDS = 3;
+    /**
+     * 分配量允许的固定误差（字节）
+     */
+    private static final long BYTES_SLACK = 1024;
+
+    /**
+     * 执行并统计，中位耗时或分配量超出基准的(1+容差)倍、或没有基准时失败；
+     * 超出时重新采样，每轮都超出才失败，避免机器负载与GC波动误报
+     *
+     * @param name      名称
+     * @param operation 单次操作
+     * @return 结果
+     */
+    public static Result measure(String name, Runnable operation) {
+        long warmup = System.nanoTime();
+        for (int i = 0; i < WARMUP_COUNT || System.nanoTime() - warmup < WARMUP_NANOS; i++) {
+            operation.run();
+        }
+        Result result = sample(name, operation);
+        for (int round = 1; round < MAX_ROUNDS && !Boolean.getBoolean("clip.benchmark.record") && !compare(result).isEmpty(); round++) {
+            Result retry = sample(name, operation);
+            if (retry.nanos < result.nanos) {
+                result = retry;
+            }
+        }
+        System.out.println(result);
+        report(result);
+        return result;
+    }
+
+    /**
+     * @param name      名称
+     * @param operation 单次操作
+     * @return 采样次数的中位耗时与平均分配
+     */
+    private static Result sample(String name, Runnable operation) {
+        long[] samples = new long[SAMPLE_COUNT];
+        long startBytes = getAllocatedBytes();
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        long endBytes = getAllocatedBytes();
+        Arrays.sort(samples);
+        long bytes = startBytes < 0 ? -1 : (endBytes - startBytes) / SAMPLE_COUNT;
+        return new Result(name, samples[SAMPLE_COUNT / 2], bytes);
+    }
+
+    /**
+     * @return 当前线程累计分配（字节），不支持返回-1
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 写入结果文件，记录模式写入基准文件，否则与基准对比
+     *
+     * @param result 结果
+     */
+    private static synchronized void report(Result result) {
+        String results = System.getProperty("clip.benchmark.results");
+        if (results != null) {
+            Properties properties = load(new File(results));
+            result.put(properties);
+            store(new File(results), properties);
+        }
+        String baseline = System.getProperty("clip.benchmark.baseline");
+        if (baseline == null) {
+            return;
+        }
+        if (Boolean.getBoolean("clip.benchmark.record")) {
+            File file = new File(baseline);
+            Properties properties = load(file);
+            result.put(properties);
+            store(file, properties);
+            return;
+        }
+        List<String> regressions = compare(result);
+        if (!regressions.isEmpty()) {
+            fail(result.name + " regressed: " + regressions);
+        }
+    }
+
+    /**
+     * 与基准对比，没有基准时失败
+     *
+     * @param result 结果
+     * @return 超出基准的项，未设置基准文件时为空
+     */
+    private static synchronized List<String> compare(Result result) {
+        List<String> regressions = new ArrayList<>();
+        String baseline = System.getProperty("clip.benchmark.baseline");
+        if (baseline == null) {
+            return regressions;
+        }
+        File file = new File(baseline);
+        Properties properties = load(file);
+        long nanos = Long.parseLong(properties.getProperty(result.name + ".nanos", "-1"));
+        if (nanos <= 0) {
+            //新增的基准没有记录时不能静默通过
+            fail(result.name + " has no baseline in " + file + ", record with -PbenchmarkRecord=true");
+        }
+        float tolerance = Float.parseFloat(System.getProperty("clip.benchmark.tolerance", "0.5"));
+        long maxNanos = (long) (nanos * (1 + tolerance));
+        if (result.nanos > maxNanos) {
+            regressions.add("median " + result.nanos + " ns > " + maxNanos + " ns (baseline " + nanos + " ns, tolerance " + tolerance + ")");
+        }
+        long bytes = Long.parseLong(properties.getProperty(result.name + ".bytes", "-1"));
+        long maxBytes = (long) (bytes * (1 + tolerance)) + BYTES_SLACK;
+        if (bytes >= 0 && result.bytes > maxBytes) {
+            regressions.add("bytes " + result.bytes + " > " + maxBytes + " (baseline " + bytes + ", tolerance " + tolerance + ")");
+        }
+        return regressions;
+    }
+
+    /**
+     * @param file 文件
+     * @return 属性，文件不存在时为空
+     */
+    private static Properties load(File file) {
+        Properties properties = new Properties();
+        if (!file.exists()) {
+            return properties;
+        }
+        InputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            properties.load(is);
+        } catch (IOException e) {
+            fail("cannot read " + file + ": " + e);
+        } finally {
+            close(is);
+        }
+        return properties;
+    }
+
+    /**
+     * 按名称排序写入，便于对比差异
+     *
+     * @param file       文件
+     * @param properties 属性
+     */
+    private static void store(File file, Properties properties) {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("# ClipView基准数据，<名称>.nanos为单次中位耗时（纳秒），<名称>.bytes为单次Java堆分配（字节）\n");
+        builder.append("# 记录：./gradlew :benchmark:testDebugUnitTest -Pbenchmark -PbenchmarkRecord=true\n");
+        builder.append("# 中位耗时或分配量超出基准的(1+容差)倍时失败，容差默认0.5（-PbenchmarkTolerance）；没有基准的项失败\n");
+        builder.append("# 耗时与机器相关，换机器后先在本机记录；分配量与机器无关\n");
+        TreeMap<Object, Object> sorted = new TreeMap<>(properties);
+        for (Object key : sorted.keySet()) {
+            builder.append(key).append('=').append(sorted.get(key)).append('\n');
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(file);
+            os.write(builder.toString().getBytes("UTF-8"));
+        } catch (IOException e) {
+            fail("cannot write " + file + ": " + e);
+        } finally {
+            close(os);
+        }
+    }
+
+    /**
+     * @param closeable 需要关闭的流
+     */
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                //忽略关闭异常
+            }
+        }
+    }
+
+    /**
+     * 统计结果
+     */
+    public static class Result {
+
+        /**
+         * 名称
+         */
+        public final String name;
+        /**
+         * 单次中位耗时（纳秒）
+         */
+        public final long nanos;
+        /**
+         * 单次Java堆分配（字节），不支持统计时为-1
+         */
+        public final long bytes;
+
+        public Result(String name, long nanos, long bytes) {
+            this.name = name;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @param properties 写入的属性
+         */
+        private void put(Properties properties) {
+            properties.setProperty(name + ".nanos", String.valueOf(nanos));
+            if (bytes >= 0) {
+                properties.setProperty(name + ".bytes", String.valueOf(bytes));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + nanos / 1000 + " us/op, " + bytes + " B/op";
+        }
+    }
+
+}
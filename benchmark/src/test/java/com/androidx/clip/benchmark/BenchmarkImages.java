@@ -0,0 +1,59 @@
+package com.androidx.clip.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 基准测试图片
+ */
+public class BenchmarkImages {
+
+    /**
+     * 创建渐变图片，避免纯色图片压缩、解码过快
+     *
+     * @param width  宽度
+     * @param height 高度
+     * @return 图片
+     */
+    public static Bitmap createBitmap(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setShader(new LinearGradient(0, 0, width, height, Color.RED, Color.BLUE, Shader.TileMode.MIRROR));
+        canvas.drawRect(0, 0, width, height, paint);
+        paint.setShader(new LinearGradient(0, height, width / 8F, 0, Color.TRANSPARENT, Color.GREEN, Shader.TileMode.MIRROR));
+        canvas.drawRect(0, 0, width, height, paint);
+        return bitmap;
+    }
+
+    /**
+     * 创建JPEG图片文件
+     *
+     * @param dir    目录
+     * @param width  宽度
+     * @param height 高度
+     * @return 文件
+     * @throws IOException 写入失败
+     */
+    public static File createFile(File dir, int width, int height) throws IOException {
+        File file = new File(dir, width + "x" + height + ".jpg");
+        Bitmap bitmap = createBitmap(width, height);
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, os);
+        } finally {
+            os.close();
+            bitmap.recycle();
+        }
+        return file;
+    }
+
+}
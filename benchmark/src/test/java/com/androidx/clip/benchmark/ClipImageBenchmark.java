@@ -0,0 +1,153 @@
+package com.androidx.clip.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.androidx.clip.ClipImage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * 图片稳定状态绘制：静止（含紧凑模式）、拖动、双指缩放，每次操作为一帧
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ClipImageBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private ClipImage image;
+    private Canvas canvas;
+    private long downTime;
+
+    @Before
+    public void setUp() {
+        image = new ClipImage(ApplicationProvider.getApplicationContext());
+        image.setClipWidth(702);
+        image.setClipHeight(702);
+        image.setImageBitmap(BenchmarkImages.createBitmap(2048, 1536));
+        image.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        image.layout(0, 0, WIDTH, HEIGHT);
+        canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        downTime = SystemClock.uptimeMillis();
+    }
+
+    @Test
+    public void draw_idle() {
+        Benchmark.measure("image_draw_idle", new Runnable() {
+            @Override
+            public void run() {
+                image.draw(canvas);
+            }
+        });
+    }
+
+    @Test
+    public void draw_idle_compact() {
+        image.setCompact(true);
+        Benchmark.measure("image_draw_idle_compact", new Runnable() {
+            @Override
+            public void run() {
+                image.draw(canvas);
+            }
+        });
+    }
+
+    @Test
+    public void draw_pan() {
+        float x = WIDTH / 2F;
+        float y = HEIGHT / 2F;
+        image.onTouchEvent(obtain(MotionEvent.ACTION_DOWN, x, y));
+        //事件提前创建，只统计控件内的分配
+        final MotionEvent[] events = new MotionEvent[2];
+        events[0] = obtain(MotionEvent.ACTION_MOVE, x + 40, y + 30);
+        events[1] = obtain(MotionEvent.ACTION_MOVE, x, y);
+        Benchmark.measure("image_draw_pan", new Runnable() {
+
+            private int frame;
+
+            @Override
+            public void run() {
+                image.onTouchEvent(events[frame++ % events.length]);
+                frame();
+            }
+        });
+    }
+
+    @Test
+    public void draw_zoom() {
+        float x = WIDTH / 2F;
+        float y = HEIGHT / 2F;
+        image.onTouchEvent(obtain(MotionEvent.ACTION_DOWN, x, y));
+        image.onTouchEvent(obtain(MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT), x, y, 300));
+        final MotionEvent[] events = new MotionEvent[2];
+        events[0] = obtain(MotionEvent.ACTION_MOVE, x, y, 420);
+        events[1] = obtain(MotionEvent.ACTION_MOVE, x, y, 300);
+        Benchmark.measure("image_draw_zoom", new Runnable() {
+
+            private int frame;
+
+            @Override
+            public void run() {
+                image.onTouchEvent(events[frame++ % events.length]);
+                frame();
+            }
+        });
+    }
+
+    /**
+     * 代替Choreographer执行一帧并绘制
+     */
+    private void frame() {
+        Choreographer.getInstance().removeFrameCallback(image);
+        image.doFrame(System.nanoTime());
+        image.draw(canvas);
+    }
+
+    /**
+     * @param action 动作
+     * @param x      x
+     * @param y      y
+     * @return 单指事件
+     */
+    private MotionEvent obtain(int action, float x, float y) {
+        return MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0);
+    }
+
+    /**
+     * @param action 动作
+     * @param x      中心x
+     * @param y      中心y
+     * @param span   两指水平距离的一半
+     * @return 双指事件
+     */
+    private MotionEvent obtain(int action, float x, float y, float span) {
+        MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[2];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[2];
+        for (int i = 0; i < 2; i++) {
+            properties[i] = new MotionEvent.PointerProperties();
+            properties[i].id = i;
+            properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[i] = new MotionEvent.PointerCoords();
+            coords[i].x = i == 0 ? x - span : x + span;
+            coords[i].y = y;
+            coords[i].pressure = 1;
+            coords[i].size = 1;
+        }
+        return MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, 2, properties, coords, 0, 0, 1, 1, 0, 0, 0, 0);
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.androidx.clip.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.androidx.clip.ClipMask;
+import com.androidx.clip.ClipShape;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * 蒙版绘制
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ClipMaskBenchmark {
+
+    private ClipMask mask;
+    private Canvas canvas;
+
+    @Before
+    public void setUp() {
+        mask = new ClipMask(ApplicationProvider.getApplicationContext());
+        mask.setClipWidth(702);
+        mask.setClipHeight(702);
+        mask.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mask.layout(0, 0, 1080, 1920);
+        canvas = new Canvas(Bitmap.createBitmap(1080, 1920, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void draw_rect() {
+        draw(ClipShape.RECT);
+    }
+
+    @Test
+    public void draw_circle() {
+        draw(ClipShape.CIRCLE);
+    }
+
+    @Test
+    public void draw_round() {
+        draw(ClipShape.ROUND);
+    }
+
+    /**
+     * 图形每帧切换，路径每帧重建
+     */
+    @Test
+    public void draw_rebuild() {
+        Benchmark.measure("mask_draw_rebuild", new Runnable() {
+
+            private int frame;
+
+            @Override
+            public void run() {
+                mask.setClipShape(frame++ % 2 == 0 ? ClipShape.CIRCLE : ClipShape.ROUND);
+                mask.draw(canvas);
+            }
+        });
+    }
+
+    /**
+     * 路径已缓存时的稳定绘制
+     *
+     * @param shape 图形
+     */
+    private void draw(ClipShape shape) {
+        mask.setClipShape(shape);
+        Benchmark.measure("mask_draw_" + shape.name().toLowerCase(), new Runnable() {
+            @Override
+            public void run() {
+                mask.draw(canvas);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.androidx.clip.benchmark;
+
+import android.graphics.Bitmap;
+
+import com.androidx.clip.BitmapPool;
+import com.androidx.clip.ClipDecoder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.IOException;
+
+/**
+ * 不同尺寸图片按显示尺寸采样解码
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class DecodeBenchmark {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decode_1024x768() throws IOException {
+        decode(1024, 768);
+    }
+
+    @Test
+    public void decode_2048x1536() throws IOException {
+        decode(2048, 1536);
+    }
+
+    @Test
+    public void decode_4032x3024() throws IOException {
+        decode(4032, 3024);
+    }
+
+    /**
+     * 与ClipImage相同只按宽度解码到1080宽，结果归还复用池，统计稳定状态下的复用解码
+     *
+     * @param width  图片宽度
+     * @param height 图片高度
+     * @throws IOException 图片创建失败
+     */
+    private void decode(int width, int height) throws IOException {
+        final String path = BenchmarkImages.createFile(folder.getRoot(), width, height).getAbsolutePath();
+        Benchmark.measure("decode_" + width + "x" + height, new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = ClipDecoder.decodeFile(path, 1080, 0, Bitmap.Config.ARGB_8888, null);
+                BitmapPool.getDefault().put(bitmap);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.androidx.clip.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.RectF;
+
+import com.androidx.clip.BitmapPool;
+import com.androidx.clip.ClipEngine;
+import com.androidx.clip.ClipShape;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * 矩形、圆形、圆角裁剪输出
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ExtractBenchmark {
+
+    private Bitmap source;
+    private Bitmap dest;
+    private final RectF rect = new RectF(512, 384, 1536, 1152);
+
+    @Before
+    public void setUp() {
+        source = BenchmarkImages.createBitmap(2048, 1536);
+        dest = Bitmap.createBitmap(702, 702, Bitmap.Config.ARGB_8888);
+    }
+
+    @After
+    public void tearDown() {
+        source.recycle();
+        dest.recycle();
+        BitmapPool.getDefault().clear();
+    }
+
+    @Test
+    public void clip_rect() {
+        clip(ClipShape.RECT);
+    }
+
+    @Test
+    public void clip_circle() {
+        clip(ClipShape.CIRCLE);
+    }
+
+    @Test
+    public void clip_round() {
+        clip(ClipShape.ROUND);
+    }
+
+    @Test
+    public void clip_rect_dest() {
+        clipInto(ClipShape.RECT);
+    }
+
+    @Test
+    public void clip_circle_dest() {
+        clipInto(ClipShape.CIRCLE);
+    }
+
+    @Test
+    public void clip_round_dest() {
+        clipInto(ClipShape.ROUND);
+    }
+
+    /**
+     * 输出到复用池中的Bitmap，结果归还复用池
+     *
+     * @param shape 图形
+     */
+    private void clip(final ClipShape shape) {
+        Benchmark.measure("clip_" + shape.name().toLowerCase(), new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = ClipEngine.clip(source, rect, 0, false, shape, 40, null, 702, 702, Bitmap.Config.ARGB_8888);
+                BitmapPool.getDefault().put(bitmap);
+            }
+        });
+    }
+
+    /**
+     * 输出到调用方的Bitmap
+     *
+     * @param shape 图形
+     */
+    private void clipInto(final ClipShape shape) {
+        Benchmark.measure("clip_" + shape.name().toLowerCase() + "_dest", new Runnable() {
+            @Override
+            public void run() {
+                ClipEngine.clip(source, rect, 0, false, shape, 40, null, dest);
+            }
+        });
+    }
+
+}